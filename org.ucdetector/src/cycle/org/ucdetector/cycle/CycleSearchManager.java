@@ -32,6 +32,8 @@ import org.ucdetector.Messages;
 import org.ucdetector.cycle.model.Cycle;
 import org.ucdetector.cycle.model.SearchResult;
 import org.ucdetector.cycle.model.SearchResultRoot;
+import org.ucdetector.preferences.DetectionConfig;
+import org.ucdetector.search.LineManger;
 import org.ucdetector.search.SearchManager;
 import org.ucdetector.util.JavaElementUtil;
 
@@ -69,26 +71,34 @@ class CycleSearchManager {
     //
     Set<Entry<IJavaProject, List<IType>>> entrySet = typesMap.entrySet();
     int projectNr = 1;
-    for (Entry<IJavaProject, List<IType>> entry : entrySet) {
-      IJavaProject javaProject = entry.getKey();
-      List<IType> types = entry.getValue();
-      List<TypeAndMatches> typeAndRefsList = searchAllTypes(types, projectNr);
-      SearchResult searchResult = new SearchResult(root, selections, javaProject);
-      CycleCalculator cycleCalculator = new CycleCalculator(searchResult, typeAndRefsList, monitor);
-      monitor.subTask(Messages.CycleSearchManager_Project_Info + javaProject.getElementName());
-      monitor.worked(1);
-      List<Cycle> cycleList = cycleCalculator.calculate();
-      //
-      searchResult.setCycles(cycleList);
-      if (Log.isDebug()) {
-        Log.debug("Found cycles:\r\n" + searchResult); //$NON-NLS-1$
+    // All classes of all projects use the same parsed java files
+    LineManger lineManger = LineManger.acquire(DetectionConfig.create());
+    try {
+      for (Entry<IJavaProject, List<IType>> entry : entrySet) {
+        IJavaProject javaProject = entry.getKey();
+        List<IType> types = entry.getValue();
+        List<TypeAndMatches> typeAndRefsList = searchAllTypes(types, projectNr, lineManger);
+        SearchResult searchResult = new SearchResult(root, selections, javaProject);
+        CycleCalculator cycleCalculator = new CycleCalculator(searchResult, typeAndRefsList, monitor);
+        monitor.subTask(Messages.CycleSearchManager_Project_Info + javaProject.getElementName());
+        monitor.worked(1);
+        List<Cycle> cycleList = cycleCalculator.calculate();
+        //
+        searchResult.setCycles(cycleList);
+        if (Log.isDebug()) {
+          Log.debug("Found cycles:\r\n" + searchResult); //$NON-NLS-1$
+        }
+        root.getChildren().add(searchResult);
+        projectNr++;
       }
-      root.getChildren().add(searchResult);
-      projectNr++;
+    }
+    finally {
+      lineManger.release();
     }
   }
 
-  private List<TypeAndMatches> searchAllTypes(List<IType> types, int projectNr) throws CoreException {
+  private List<TypeAndMatches> searchAllTypes(List<IType> types, int projectNr, LineManger lineManger)
+      throws CoreException {
     List<TypeAndMatches> result = new ArrayList<TypeAndMatches>();
     int search = 0;
     for (IType type : types) {
@@ -99,7 +109,7 @@ class CycleSearchManager {
       String mes = getMonitorMessage(types, projectNr, search, type);
       monitor.subTask(mes);
       monitor.worked(1);
-      TypeAndMatches typeAndMatches = new TypeAndMatches(type);
+      TypeAndMatches typeAndMatches = new TypeAndMatches(type, lineManger);
       SearchPattern pattern = SearchPattern.createPattern(type, IJavaSearchConstants.REFERENCES,
           SearchPattern.R_EXACT_MATCH);
       // IJavaSearchScope scope = SearchEngine.createWorkspaceScope();
@@ -38,16 +38,21 @@ import org.ucdetector.util.JavaElementUtil;
  */
 class TypeAndMatches {
   private final IType root;
-  private final LineManger lineManger = new LineManger();
+  private final LineManger lineManger;
 
   private final Map<IType, List<CycleMember>> referencesMap //
   = new HashMap<IType, List<CycleMember>>();
 
-  TypeAndMatches(IType root) {
+  /**
+   * @param root class, which references are collected
+   * @param lineManger shared by all classes of a cycle search
+   */
+  TypeAndMatches(IType root, LineManger lineManger) {
     if (root == null) {
       throw new IllegalArgumentException("root may not be null"); //$NON-NLS-1$
     }
     this.root = root;
+    this.lineManger = lineManger;
   }
 
   void addMatch(SearchMatch match) {
@@ -56,6 +56,7 @@ public final class Messages extends NLS {
   // ITERATORS ---------------------------------------------------------------
   public static String UCDetectorIterator_JobName;
   public static String CleanMarkersIterator_JobName;
+  public static String IncrementalDetection_JobName;
   public static String UCDetectorIterator_MONITOR_INFO;
   //  public static String UCDetectorPreferencePageKeywords_ChangeAllCombos;
   public static String AbstractUCDetectorIterator_NothingToDetectTitle;
@@ -52,6 +52,7 @@ import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.prefs.BackingStoreException;
 import org.ucdetector.Log.LogLevel;
+import org.ucdetector.iterator.IncrementalDetectionListener;
 import org.ucdetector.preferences.Prefs;
 
 /**
@@ -120,6 +121,7 @@ public class UCDetectorPlugin extends AbstractUIPlugin {
     super.start(context);
     dumpInformation();
     addPropertyChangeListener();
+    IncrementalDetectionListener.register();
   }
 
   private void addPropertyChangeListener() {
@@ -200,6 +202,7 @@ public class UCDetectorPlugin extends AbstractUIPlugin {
   @Override
   public void stop(BundleContext context) throws Exception {
     Log.info("Stopping UCDetector Plug-In at " + UCDInfo.getNow(true));
+    IncrementalDetectionListener.unregister();
     super.stop(context);
     plugin = null;
   }
@@ -39,7 +39,7 @@ import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.ucdetector.Log;
-import org.ucdetector.preferences.Prefs;
+import org.ucdetector.preferences.DetectionConfig;
 import org.ucdetector.search.UCDProgressMonitor;
 import org.ucdetector.util.JavaElementUtil;
 import org.ucdetector.util.MarkerFactory;
@@ -66,6 +66,8 @@ public abstract class AbstractUCDetectorIterator {
   private final long timeStart = System.currentTimeMillis();
   private long timeEnd = 0;
   private MarkerFactory markerFactory = null;
+  /** Preferences read when the iteration starts */
+  private DetectionConfig config;
 
   // -------------------------------------------------------------------------
   // ITERATOR
@@ -98,6 +100,7 @@ public abstract class AbstractUCDetectorIterator {
    */
   public final void iterate(IJavaElement[] javaElements) throws CoreException {
     this.objectsToIterate = javaElements;
+    this.config = DetectionConfig.create();
     try {
       handleStartGlobal(javaElements);
       for (IJavaElement selection : javaElements) {
@@ -292,12 +295,24 @@ public abstract class AbstractUCDetectorIterator {
 
   protected final MarkerFactory getMarkerFactory() throws CoreException {
     if (markerFactory == null) {
-      markerFactory = MarkerFactory.createInstance();
+      markerFactory = createMarkerFactory();
       markerFactory.startReport(objectsToIterate, timeStart);
     }
     return markerFactory;
   }
 
+  /**
+   * @return preferences read when the iteration started
+   */
+  protected final DetectionConfig getConfig() {
+    return config;
+  }
+
+  /** Override, to create markers without reports   */
+  protected MarkerFactory createMarkerFactory() {
+    return MarkerFactory.createInstance(config);
+  }
+
   /**
    * Debug, that a member will be handled!
    */
@@ -532,7 +547,7 @@ public abstract class AbstractUCDetectorIterator {
    * This could be a lot of stuff in case of big jars!
    */
   protected boolean doPackageFragmentRootChildren(IPackageFragmentRoot packageFragmentRoot) {
-    return !packageFragmentRoot.isArchive() && !Prefs.isFilterPackageFragmentRoot(packageFragmentRoot);
+    return !packageFragmentRoot.isArchive() && !config.isFilterPackageFragmentRoot(packageFragmentRoot);
   }
 
   /**
@@ -540,7 +555,7 @@ public abstract class AbstractUCDetectorIterator {
    * children of packages, which are classes
    */
   protected boolean doPackageChildren(IPackageFragment packageFragment) { // // NO_UCD
-    return !Prefs.isFilterPackage(packageFragment);
+    return !config.isFilterPackage(packageFragment);
   }
 
   /**
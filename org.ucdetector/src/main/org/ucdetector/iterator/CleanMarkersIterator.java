@@ -21,8 +21,8 @@ import org.ucdetector.util.MarkerFactory;
 public class CleanMarkersIterator extends AbstractUCDetectorIterator {
 
   @Override
-  public void handleStartSelectedElement(IJavaElement javaElement) throws CoreException {
-    MarkerFactory.deleteMarkers(javaElement);
+  public void handleStartGlobal(IJavaElement[] javaElements) throws CoreException {
+    MarkerFactory.deleteMarkers(javaElements);
   }
 
   @Override
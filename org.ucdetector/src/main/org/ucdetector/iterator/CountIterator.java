@@ -16,7 +16,6 @@ import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IType;
 import org.ucdetector.Messages;
-import org.ucdetector.preferences.Prefs;
 import org.ucdetector.util.JavaElementUtil;
 
 /**
@@ -84,7 +83,7 @@ public class CountIterator extends AbstractUCDetectorIterator {
 
   @Override
   protected boolean handleType(IType type) throws CoreException {
-    if (isPrivate(type) || Prefs.isFilterType(type)) {
+    if (isPrivate(type) || getConfig().isFilterType(type)) {
       debugNotHandle(type, "isPrivate or isFilterType"); //$NON-NLS-1$ 
       return true;
     }
@@ -95,7 +94,7 @@ public class CountIterator extends AbstractUCDetectorIterator {
 
   @Override
   protected void handleMethod(IMethod method) throws CoreException {
-    if (isPrivate(method) || Prefs.isFilterMethod(method)) {
+    if (isPrivate(method) || getConfig().isFilterMethod(method)) {
       debugNotHandle(method, "isPrivate or isFilterMethod"); //$NON-NLS-1$ 
       return;
     }
@@ -105,7 +104,7 @@ public class CountIterator extends AbstractUCDetectorIterator {
 
   @Override
   protected void handleField(IField field) throws CoreException {
-    if (isPrivate(field) || Prefs.isFilterField(field)) {
+    if (isPrivate(field) || getConfig().isFilterField(field)) {
       return;
     }
     debugHandle(field);
@@ -0,0 +1,371 @@
+/**
+ * Copyright (c) 2026 agent
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ucdetector.iterator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ConstructorInvocation;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
+import org.ucdetector.Log;
+import org.ucdetector.Messages;
+import org.ucdetector.UCDetectorPlugin;
+import org.ucdetector.preferences.Prefs;
+import org.ucdetector.search.UCDProgressMonitor;
+import org.ucdetector.util.JavaElementUtil;
+import org.ucdetector.util.MarkerFactory;
+
+/**
+ * Keep UCDetector markers up to date, when java files change. After each build, a low priority job detects:
+ * <ul>
+ * <li>all classes, methods, fields of changed java files</li>
+ * <li>classes, methods, fields referenced by changed java files now</li>
+ * <li>classes, methods, fields referenced by changed java files, when they were detected last time</li>
+ * </ul>
+ * Only markers of detected elements are replaced. Report files are not written.<br>
+ * References removed by the first change of a java file after starting eclipse are not found,
+ * because the former references of the file are unknown. Run UCDetector to get all markers.
+ * <p>
+ * @author agent
+ * @since 2026-10-17
+ */
+public final class IncrementalDetectionListener implements IResourceChangeListener {
+  /** Wait for more changes, before detection starts */
+  private static final long DELAY = 2000L;
+  private static IncrementalDetectionListener instance;
+  /** java file path -> handle identifiers of members referenced by the java file, when it was detected last time */
+  private final Map<String, Set<String>> referencedMembers = new HashMap<String, Set<String>>();
+  /** java files changed since the last detection */
+  private final Set<IFile> changedFiles = new LinkedHashSet<IFile>();
+  /** handle identifiers of members referenced by deleted java files */
+  private final Set<String> referencedByDeletedFiles = new HashSet<String>();
+  private final Job job = new IncrementalDetectionJob();
+
+  private IncrementalDetectionListener() {
+    //
+  }
+
+  /** Start listening to resource changes. Detection only runs, when the preference is switched on */
+  public static synchronized void register() {
+    if (instance == null) {
+      instance = new IncrementalDetectionListener();
+      ResourcesPlugin.getWorkspace().addResourceChangeListener(instance, IResourceChangeEvent.POST_BUILD);
+    }
+  }
+
+  public static synchronized void unregister() {
+    if (instance != null) {
+      ResourcesPlugin.getWorkspace().removeResourceChangeListener(instance);
+      instance.job.cancel();
+      instance = null;
+    }
+  }
+
+  @Override
+  public void resourceChanged(IResourceChangeEvent event) {
+    if (!Prefs.isIncrementalDetection() || event.getDelta() == null) {
+      return;
+    }
+    try {
+      ChangedFilesVisitor visitor = new ChangedFilesVisitor();
+      event.getDelta().accept(visitor);
+      if (visitor.hasChanges) {
+        job.schedule(DELAY);
+      }
+    }
+    catch (CoreException e) {
+      Log.warn("Can't get changed java files: %s", e); //$NON-NLS-1$
+    }
+  }
+
+  private final class ChangedFilesVisitor implements IResourceDeltaVisitor {
+    boolean hasChanges = false;
+
+    @Override
+    public boolean visit(IResourceDelta delta) {
+      IResource resource = delta.getResource();
+      if (!(resource instanceof IFile) || !"java".equalsIgnoreCase(resource.getFileExtension())) { //$NON-NLS-1$
+        return true;
+      }
+      synchronized (IncrementalDetectionListener.this) {
+        switch (delta.getKind()) {
+          case IResourceDelta.ADDED:
+            changedFiles.add((IFile) resource);
+            hasChanges = true;
+            break;
+          case IResourceDelta.CHANGED:
+            if ((delta.getFlags() & IResourceDelta.CONTENT) != 0) {
+              changedFiles.add((IFile) resource);
+              hasChanges = true;
+            }
+            break;
+          case IResourceDelta.REMOVED:
+            changedFiles.remove(resource);
+            Set<String> references = referencedMembers.remove(getPath(resource));
+            if (references != null) {
+              referencedByDeletedFiles.addAll(references);
+              hasChanges = true;
+            }
+            break;
+          default:
+            break;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static String getPath(IResource resource) {
+    return resource.getFullPath().toString();
+  }
+
+  /**
+   * Detect changed java files and the elements they reference
+   */
+  private final class IncrementalDetectionJob extends Job {
+
+    IncrementalDetectionJob() {
+      super(Messages.IncrementalDetection_JobName);
+      setPriority(Job.DECORATE);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      UCDProgressMonitor ucdMonitor = new UCDProgressMonitor(monitor);
+      try {
+        detect(ucdMonitor);
+      }
+      catch (CoreException e) {
+        UCDetectorPlugin.logToEclipseLog(e.getStatus());
+      }
+      finally {
+        ucdMonitor.done();
+      }
+      return ucdMonitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+    }
+  }
+
+  private void detect(UCDProgressMonitor monitor) throws CoreException {
+    Set<String> formerReferences = new HashSet<String>();
+    List<ICompilationUnit> units = new ArrayList<ICompilationUnit>();
+    synchronized (this) {
+      for (IFile file : changedFiles) {
+        ICompilationUnit unit = JavaElementUtil.getCompilationUnitFor(file);
+        if (unit != null && unit.exists() && unit.getJavaProject().isOnClasspath(unit)) {
+          units.add(unit);
+        }
+        Set<String> references = referencedMembers.get(getPath(file));
+        if (references != null) {
+          formerReferences.addAll(references);
+        }
+      }
+      formerReferences.addAll(referencedByDeletedFiles);
+      changedFiles.clear();
+      referencedByDeletedFiles.clear();
+    }
+    Map<String, Set<String>> references = findReferences(units, monitor);
+    synchronized (this) {
+      referencedMembers.putAll(references);
+    }
+    Set<String> memberHandles = new LinkedHashSet<String>(formerReferences);
+    for (Set<String> unitReferences : references.values()) {
+      memberHandles.addAll(unitReferences);
+    }
+    Set<IMember> members = new LinkedHashSet<IMember>();
+    for (String handle : memberHandles) {
+      IJavaElement element = JavaCore.create(handle);
+      if (element instanceof IMember && element.exists()
+          && !units.contains(((IMember) element).getCompilationUnit())) {
+        members.add((IMember) element);
+      }
+    }
+    List<IJavaElement> elementsToDetect = new ArrayList<IJavaElement>(units);
+    for (IMember member : members) {
+      // Detecting a class detects its methods and fields, too
+      if (!isDeclaredIn(member, members)) {
+        elementsToDetect.add(member);
+      }
+    }
+    if (elementsToDetect.isEmpty() || monitor.isCanceled()) {
+      return;
+    }
+    Log.info("Incremental detection: %s changed files, %s referenced elements", Integer.valueOf(units.size()), //$NON-NLS-1$
+        Integer.valueOf(elementsToDetect.size() - units.size()));
+    IncrementalIterator iterator = new IncrementalIterator();
+    iterator.setMonitor(monitor);
+    iterator.iterate(elementsToDetect);
+  }
+
+  /**
+   * @return <code>true</code>, when one of the classes declaring the member is contained in members
+   */
+  private static boolean isDeclaredIn(IMember member, Set<IMember> members) {
+    for (IType type = member.getDeclaringType(); type != null; type = type.getDeclaringType()) {
+      if (members.contains(type)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return java file path -> handle identifiers of classes, methods, fields in source files referenced by the java file
+   */
+  private static Map<String, Set<String>> findReferences(List<ICompilationUnit> units, UCDProgressMonitor monitor) {
+    final Map<String, Set<String>> result = new HashMap<String, Set<String>>();
+    Map<IJavaProject, List<ICompilationUnit>> unitsByProject = new LinkedHashMap<IJavaProject, List<ICompilationUnit>>();
+    for (ICompilationUnit unit : units) {
+      List<ICompilationUnit> projectUnits = unitsByProject.get(unit.getJavaProject());
+      if (projectUnits == null) {
+        projectUnits = new ArrayList<ICompilationUnit>();
+        unitsByProject.put(unit.getJavaProject(), projectUnits);
+      }
+      projectUnits.add(unit);
+    }
+    for (Entry<IJavaProject, List<ICompilationUnit>> entry : unitsByProject.entrySet()) {
+      monitor.throwIfIsCanceled();
+      ASTParser parser = UCDetectorPlugin.newASTParser();
+      parser.setProject(entry.getKey());
+      parser.setKind(ASTParser.K_COMPILATION_UNIT);
+      parser.setResolveBindings(true);
+      List<ICompilationUnit> projectUnits = entry.getValue();
+      ICompilationUnit[] unitArray = projectUnits.toArray(new ICompilationUnit[projectUnits.size()]);
+      parser.createASTs(unitArray, new String[0], new ASTRequestor() {
+        @Override
+        public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+          ReferencedMembersVisitor visitor = new ReferencedMembersVisitor(source);
+          ast.accept(visitor);
+          result.put(getPath(source.getResource()), visitor.references);
+        }
+      }, null);
+    }
+    return result;
+  }
+
+  /**
+   * Collect classes, methods, fields declared in other source files
+   */
+  private static final class ReferencedMembersVisitor extends ASTVisitor {
+    final Set<String> references = new HashSet<String>();
+    private final ICompilationUnit unit;
+
+    ReferencedMembersVisitor(ICompilationUnit unit) {
+      this.unit = unit;
+    }
+
+    @Override
+    public boolean visit(SimpleName node) {
+      if (!node.isDeclaration()) {
+        addReference(node.resolveBinding());
+      }
+      return true;
+    }
+
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+      addReference(node.resolveConstructorBinding());
+      return true;
+    }
+
+    @Override
+    public boolean visit(ConstructorInvocation node) {
+      addReference(node.resolveConstructorBinding());
+      return true;
+    }
+
+    @Override
+    public boolean visit(SuperConstructorInvocation node) {
+      addReference(node.resolveConstructorBinding());
+      return true;
+    }
+
+    private void addReference(IBinding binding) {
+      IBinding declaration = binding;
+      if (binding instanceof IMethodBinding) {
+        declaration = ((IMethodBinding) binding).getMethodDeclaration();
+      }
+      else if (binding instanceof ITypeBinding) {
+        declaration = ((ITypeBinding) binding).getTypeDeclaration();
+      }
+      else if (binding instanceof IVariableBinding) {
+        declaration = ((IVariableBinding) binding).getVariableDeclaration();
+      }
+      IJavaElement element = declaration == null ? null : declaration.getJavaElement();
+      if (!(element instanceof IMember)) {
+        return;
+      }
+      IMember member = (IMember) element;
+      if (!member.isBinary() && !unit.equals(member.getCompilationUnit())) {
+        references.add(member.getHandleIdentifier());
+      }
+    }
+  }
+
+  /**
+   * Replace only markers of detected classes, methods, fields. Create markers only, no reports
+   */
+  private static final class IncrementalIterator extends UCDetectorIterator {
+    @Override
+    protected void deleteMarkers(final IJavaElement[] javaElements) throws CoreException {
+      MarkerFactory.runInWorkspace(new IWorkspaceRunnable() {
+        @Override
+        public void run(IProgressMonitor monitor) throws CoreException {
+          for (IJavaElement javaElement : javaElements) {
+            if (javaElement instanceof IMember) {
+              MarkerFactory.deleteMemberMarkers((IMember) javaElement);
+            }
+            else {
+              MarkerFactory.deleteMarkers(javaElement);
+            }
+          }
+        }
+      });
+    }
+
+    @Override
+    protected MarkerFactory createMarkerFactory() {
+      return MarkerFactory.createMarkerOnlyInstance(getConfig());
+    }
+  }
+}
@@ -7,21 +7,27 @@
  */
 package org.ucdetector.iterator;
 
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
 import org.ucdetector.Messages;
 import org.ucdetector.UCDInfo;
-import org.ucdetector.preferences.Prefs;
+import org.ucdetector.preferences.DetectionConfig;
 import org.ucdetector.search.SearchManager;
 import org.ucdetector.util.JavaElementUtil;
 import org.ucdetector.util.MarkerFactory;
 import org.ucdetector.util.StopWatch;
+import org.ucdetector.util.TypeHierarchyCache;
 
 /**
  * Unnecessary Code Detector Iterator Collect types, methods an fields which
@@ -33,6 +39,10 @@ import org.ucdetector.util.StopWatch;
 public class UCDetectorIterator extends AbstractUCDetectorIterator {
   private final Set<TypeContainer> typeContainers = new LinkedHashSet<TypeContainer>();
   private TypeContainer iteratedTypeContainer = null;
+  /** Preferences read when the detection starts */
+  private DetectionConfig config;
+  /** java file -> <code>true</code>, when it contains one of the strings of the filter "class containing string" */
+  private final Map<ICompilationUnit, Boolean> containStringUnits = new HashMap<ICompilationUnit, Boolean>();
 
   /**
    * Avoid NPE for missing type, eg. detection for only one method
@@ -52,8 +62,25 @@ public class UCDetectorIterator extends AbstractUCDetectorIterator {
   }
 
   @Override
-  public void handleStartSelectedElement(IJavaElement javaElement) throws CoreException {
-    MarkerFactory.deleteMarkers(javaElement);
+  public void handleStartGlobal(IJavaElement[] javaElements) throws CoreException {
+    config = getConfig();
+    containStringUnits.clear();
+    deleteMarkers(javaElements);
+  }
+
+  /**
+   * Delete markers of the selected elements, before they are detected again.
+   * When markers are updated, they are compared with the new markers at the end of the detection instead
+   * @param javaElements elements selected in user interface
+   * @throws CoreException when there are problem deleting marker
+   */
+  protected void deleteMarkers(IJavaElement[] javaElements) throws CoreException {
+    if (config.isUpdateMarkers()) {
+      getMarkerFactory().updateMarkers(javaElements);
+    }
+    else {
+      MarkerFactory.deleteMarkers(javaElements);
+    }
   }
 
   @Override
@@ -66,34 +93,31 @@ public class UCDetectorIterator extends AbstractUCDetectorIterator {
       debugNotHandle(type, "isAnonymous"); //$NON-NLS-1$
       return false;
     }
-    if (!Prefs.isUCDetectionInClasses()) {
+    if (!config.isUCDetectionInClasses()) {
       debugNotHandle(type, "not isUCDetectionInClasses"); //$NON-NLS-1$
       return false;
     }
-    if (Prefs.isFilterType(type)) {
+    if (config.isFilterType(type)) {
       debugNotHandle(type, "isFilterType"); //$NON-NLS-1$
       return false;
     }
-    if (Prefs.isFilterClassContainingString() && type.getCompilationUnit() != null) {
-      String classAsString = type.getCompilationUnit().getSource();
-      if (Prefs.isFilterClassContainingString(classAsString)) {
-        debugNotHandle(type, "isFilterClassContainingString"); //$NON-NLS-1$
-        return false;
-      }
+    if (config.isFilterClassContainingString() && isFilterClassContainingString(type.getCompilationUnit())) {
+      debugNotHandle(type, "isFilterClassContainingString"); //$NON-NLS-1$
+      return false;
     }
-    if (Prefs.isIgnoreDerived()) {
+    if (config.isIgnoreDerived()) {
       if (type.getResource() != null && type.getResource().isDerived()) {
         debugNotHandle(type, "isIgnoreDerived"); //$NON-NLS-1$
         return false;
       }
     }
     // [ 2929828 ] Filter to exclude classes extending/implementing
-    if (Prefs.isFilterImplements()) {
+    if (config.isFilterImplements()) {
       IType[] superTypes = JavaElementUtil.getAllSupertypes(type);
       for (IType superType : superTypes) {
         String simple = superType.getElementName();
         String full = superType.getFullyQualifiedName('.');
-        if (Prefs.isFilterImplements(simple) || Prefs.isFilterImplements(full)) {
+        if (config.isFilterImplements(simple) || config.isFilterImplements(full)) {
           debugNotHandle(type, "isFilterImplements"); //$NON-NLS-1$
           return false;
         }
@@ -104,6 +128,23 @@ public class UCDetectorIterator extends AbstractUCDetectorIterator {
     return true;
   }
 
+  /**
+   * Nested classes are in the same java file as their parent class, so each java file is scanned once
+   * for all strings of the filter
+   */
+  private boolean isFilterClassContainingString(ICompilationUnit unit) throws JavaModelException {
+    if (unit == null) {
+      return false;
+    }
+    Boolean result = containStringUnits.get(unit);
+    if (result == null) {
+      IBuffer buffer = unit.getBuffer();
+      result = Boolean.valueOf(buffer != null && config.isFilterClassContainingString(buffer.getCharacters()));
+      containStringUnits.put(unit, result);
+    }
+    return result.booleanValue();
+  }
+
   private TypeContainer addType(IType type) {
     iteratedTypeContainer = new TypeContainer(type);
     typeContainers.add(iteratedTypeContainer);
@@ -121,11 +162,11 @@ public class UCDetectorIterator extends AbstractUCDetectorIterator {
       debugNotHandle(method, "isMainMethod"); //$NON-NLS-1$
       return;
     }
-    if (!Prefs.isUCDetectionInMethods()) {
+    if (!config.isUCDetectionInMethods()) {
       debugNotHandle(method, "not isUCDetectionInMethods"); //$NON-NLS-1$
       return;
     }
-    if (Prefs.isFilterMethod(method)) {
+    if (config.isFilterMethod(method)) {
       debugNotHandle(method, "isFilterMethod"); //$NON-NLS-1$
       return;
     }
@@ -134,7 +175,7 @@ public class UCDetectorIterator extends AbstractUCDetectorIterator {
       debugNotHandle(method, "is default constructor"); //$NON-NLS-1$
       return;
     }
-    if (Prefs.isFilterBeanMethod() && JavaElementUtil.isBeanMethod(method)) {
+    if (config.isFilterBeanMethod() && JavaElementUtil.isBeanMethod(method)) {
       debugNotHandle(method, "isFilterBeanMethod"); //$NON-NLS-1$
       return;
     }
@@ -144,13 +185,13 @@ public class UCDetectorIterator extends AbstractUCDetectorIterator {
 
   @Override
   protected void handleField(IField field) throws CoreException {
-    if (Prefs.isFilterField(field)) {
+    if (config.isFilterField(field)) {
       debugNotHandle(field, "isFilterField"); //$NON-NLS-1$
     }
-    else if (!Prefs.isUCDetectionInFields()) {
+    else if (!config.isUCDetectionInFields()) {
       debugNotHandle(field, "not isUCDetectionInFields"); //$NON-NLS-1$
     }
-    else if (Prefs.isCheckUseFinalField()) {
+    else if (config.isCheckUseFinalField()) {
       // we need even private fields here!
       debugHandle(field);
       getIteratedTypeContainer().getFields().add(field);
@@ -174,7 +215,7 @@ public class UCDetectorIterator extends AbstractUCDetectorIterator {
     int totalSize = getElelementsToDetectCount();
     getMonitor().beginTask(Messages.UCDetectorIterator_MONITOR_INFO, totalSize);
     getMonitor().worked(1);
-    SearchManager searchManager = new SearchManager(getMonitor(), totalSize, getMarkerFactory());
+    SearchManager searchManager = new SearchManager(getMonitor(), totalSize, getMarkerFactory(), config);
     try {
       UCDInfo.logMemoryInfo();
       searchManager.search(typeContainers);
@@ -183,6 +224,7 @@ public class UCDetectorIterator extends AbstractUCDetectorIterator {
     finally {
       stopWatch.end("Time to run UCDetector"); //$NON-NLS-1$
       markerCreated = searchManager.getMarkerCreated();
+      TypeHierarchyCache.clear();
     }
   }
 
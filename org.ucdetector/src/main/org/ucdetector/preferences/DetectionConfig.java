@@ -0,0 +1,505 @@
+/**
+ * Copyright (c) 2026 agent
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ucdetector.preferences;
+
+import java.nio.CharBuffer;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.ucdetector.util.JavaElementUtil;
+
+/**
+ * Preferences used during a detection, read once when the detection starts.<p>
+ * Searching calls these preferences for each search match. Reading them from this snapshot avoids the lookups
+ * in the preference store, and changing preferences during a long detection does not change the results
+ * of this detection.
+ * <p>
+ * Instances are immutable, so they can be used by several threads.
+ * <p>
+ * @author agent
+ * @since 2026-10-17
+ */
+public final class DetectionConfig {
+  // FILTER
+  private final boolean detectTestOnly;
+  private final boolean filterClassWithMainMethod;
+  private final boolean filterDeprecated;
+  private final boolean filterNoUcd;
+  private final boolean filterBeanMethod;
+  private final boolean ignoreDerived;
+  private final NameFilter sourceFolderFilter;
+  private final NameFilter packageFilter;
+  private final NameFilter classFilter;
+  private final NameFilter methodFilter;
+  private final NameFilter fieldFilter;
+  private final NameFilter annotationFilter;
+  private final NameFilter implementsFilter;
+  /** all strings of the filter "class containing string" in one pattern. <code>null</code>, when there are none */
+  private final Pattern containStringPattern;
+  // DETECT
+  private final WarnLevel detectClasses;
+  private final WarnLevel detectMethods;
+  private final WarnLevel detectFields;
+  private final boolean literals;
+  private final boolean literalsFullClassName;
+  private final boolean literalsSimpleClassName;
+  private final String[] filePatternLiteralSearch;
+  private final int warnLimit;
+  // KEYWORD
+  private final WarnLevel protectedClasses;
+  private final WarnLevel protectedMethods;
+  private final WarnLevel protectedFields;
+  private final WarnLevel protectedConstants;
+  private final WarnLevel privateClasses;
+  private final WarnLevel privateMethods;
+  private final WarnLevel privateFields;
+  private final WarnLevel privateConstants;
+  private final boolean ignoreSyntheticAccessEmulationWarning;
+  private final WarnLevel checkUseFinalField;
+  private final WarnLevel checkUseFinalMethod;
+  // PERFORMANCE
+  private final int searchThreads;
+  private final boolean referenceIndex;
+  private final boolean batchSearch;
+  private final boolean referenceCache;
+  private final boolean literalCache;
+  private final int lineCacheSize;
+  private final boolean preParse;
+  private final boolean updateMarkers;
+
+  private DetectionConfig() {
+    detectTestOnly = Prefs.isDetectTestOnly();
+    filterClassWithMainMethod = Prefs.isFilterClassWithMainMethod();
+    filterDeprecated = Prefs.isFilterDeprecated();
+    filterNoUcd = Prefs.isFilter_NO_UCD();
+    filterBeanMethod = Prefs.isFilterBeanMethod();
+    ignoreDerived = Prefs.isIgnoreDerived();
+    sourceFolderFilter = Prefs.createNameFilter(Prefs.FILTER_SOURCE_FOLDER);
+    packageFilter = Prefs.createNameFilter(Prefs.FILTER_PACKAGE);
+    classFilter = Prefs.createNameFilter(Prefs.FILTER_CLASS);
+    methodFilter = Prefs.createNameFilter(Prefs.FILTER_METHOD);
+    fieldFilter = Prefs.createNameFilter(Prefs.FILTER_FIELD);
+    annotationFilter = Prefs.createNameFilter(Prefs.FILTER_ANNOATIONS);
+    implementsFilter = Prefs.createNameFilter(Prefs.FILTER_IMPLEMENTS);
+    containStringPattern = createContainStringPattern(Prefs.getFilterClassContainingStrings());
+    //
+    detectClasses = Prefs.getUCDetectionInClasses();
+    detectMethods = Prefs.getUCDetectionInMethods();
+    detectFields = Prefs.getUCDetectionInFields();
+    literals = Prefs.isUCDetectionInLiterals();
+    literalsFullClassName = Prefs.isUCDetectionInLiteralsFullClassName();
+    literalsSimpleClassName = Prefs.isUCDetectionInLiteralsSimpleClassName();
+    filePatternLiteralSearch = Prefs.getFilePatternLiteralSearch();
+    warnLimit = Prefs.getWarnLimit();
+    //
+    protectedClasses = Prefs.getWarnLevel(Prefs.ANALYZE_VISIBILITY_PROTECTED_CLASSES);
+    protectedMethods = Prefs.getWarnLevel(Prefs.ANALYZE_VISIBILITY_PROTECTED_METHODS);
+    protectedFields = Prefs.getWarnLevel(Prefs.ANALYZE_VISIBILITY_PROTECTED_FIELDS);
+    protectedConstants = Prefs.getWarnLevel(Prefs.ANALYZE_VISIBILITY_PROTECTED_CONSTANTS);
+    privateClasses = Prefs.getWarnLevel(Prefs.ANALYZE_VISIBILITY_PRIVATE_CLASSES);
+    privateMethods = Prefs.getWarnLevel(Prefs.ANALYZE_VISIBILITY_PRIVATE_METHODS);
+    privateFields = Prefs.getWarnLevel(Prefs.ANALYZE_VISIBILITY_PRIVATE_FIELDS);
+    privateConstants = Prefs.getWarnLevel(Prefs.ANALYZE_VISIBILITY_PRIVATE_CONSTANTS);
+    ignoreSyntheticAccessEmulationWarning = Prefs.isIgnoreSyntheticAccessEmulationWarning();
+    checkUseFinalField = Prefs.getCheckUseFinalField();
+    checkUseFinalMethod = Prefs.getCheckUseFinalMethod();
+    //
+    searchThreads = Prefs.getSearchThreads();
+    referenceIndex = Prefs.isReferenceIndex();
+    batchSearch = Prefs.isBatchSearch();
+    referenceCache = Prefs.isReferenceCache();
+    literalCache = Prefs.isLiteralCache();
+    lineCacheSize = Prefs.getLineCacheSize();
+    preParse = Prefs.isPreParse();
+    updateMarkers = Prefs.isUpdateMarkers();
+  }
+
+  /**
+   * @return preferences as they are now
+   */
+  public static DetectionConfig create() {
+    return new DetectionConfig();
+  }
+
+  /**
+   * @return one pattern matching each of the strings, to find all strings in a single pass
+   */
+  private static Pattern createContainStringPattern(String[] strings) {
+    if (strings.length == 0) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (String string : strings) {
+      sb.append(sb.length() == 0 ? "" : "|").append("(?:").append(Pattern.quote(string)).append(')'); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+    return Pattern.compile(sb.toString());
+  }
+
+  // FILTER --------------------------------------------------------------------
+  /**
+   * @see Prefs#isFilterPackageFragmentRoot(IPackageFragmentRoot)
+   */
+  public boolean isFilterPackageFragmentRoot(IPackageFragmentRoot root) {
+    String sourceFolder = JavaElementUtil.getSourceFolderProjectRelativePath(root);
+    return sourceFolder == null || sourceFolderFilter.matches(sourceFolder);
+  }
+
+  /**
+   * @see Prefs#isFilterPackage(IPackageFragment)
+   */
+  public boolean isFilterPackage(IPackageFragment packageFragment) {
+    return packageFilter.matches(packageFragment.getElementName());
+  }
+
+  /**
+   * @see Prefs#isFilterType(IType)
+   */
+  public boolean isFilterType(IType type) {
+    return classFilter.matches(type.getElementName());
+  }
+
+  /**
+   * @see Prefs#isFilterMethod(IMethod)
+   */
+  public boolean isFilterMethod(IMethod method) {
+    return methodFilter.matches(method.getElementName());
+  }
+
+  /**
+   * @see Prefs#isFilterField(IField)
+   */
+  public boolean isFilterField(IField field) {
+    return fieldFilter.matches(field.getElementName());
+  }
+
+  /**
+   * @see Prefs#isFilterBeanMethod()
+   */
+  public boolean isFilterBeanMethod() {
+    return filterBeanMethod;
+  }
+
+  /**
+   * @see Prefs#isIgnoreDerived()
+   */
+  public boolean isIgnoreDerived() {
+    return ignoreDerived;
+  }
+
+  /**
+   * @see Prefs#isFilterImplements()
+   */
+  public boolean isFilterImplements() {
+    return !implementsFilter.isEmpty();
+  }
+
+  /**
+   * @see Prefs#isFilterImplements(String)
+   */
+  public boolean isFilterImplements(String className) {
+    return implementsFilter.matches(className);
+  }
+
+  /**
+   * @see Prefs#isDetectTestOnly()
+   */
+  public boolean isDetectTestOnly() {
+    return detectTestOnly;
+  }
+
+  /**
+   * @see Prefs#isFilterClassWithMainMethod()
+   */
+  public boolean isFilterClassWithMainMethod() {
+    return filterClassWithMainMethod;
+  }
+
+  /**
+   * @see Prefs#isFilterDeprecated()
+   */
+  public boolean isFilterDeprecated() {
+    return filterDeprecated;
+  }
+
+  /**
+   * @see Prefs#isFilter_NO_UCD()
+   */
+  public boolean isFilter_NO_UCD() {
+    return filterNoUcd;
+  }
+
+  /**
+   * @see Prefs#isFilterClassContainingString()
+   */
+  public boolean isFilterClassContainingString() {
+    return containStringPattern != null;
+  }
+
+  /**
+   * @param contents content of a java file
+   * @return <code>true</code>, the java file contains one of the strings
+   * @see Prefs#isFilterClassContainingString(String)
+   */
+  public boolean isFilterClassContainingString(char[] contents) {
+    return containStringPattern != null && contents != null
+        && containStringPattern.matcher(CharBuffer.wrap(contents)).find();
+  }
+
+  /**
+   * @return <code>true</code>, when the annotation filter is active
+   */
+  public boolean isFilterAnnotation() {
+    return !annotationFilter.isEmpty();
+  }
+
+  /**
+   * @see Prefs#isFilterAnnotation(String)
+   */
+  public boolean isFilterAnnotation(String annotation) {
+    return annotationFilter.matches(annotation);
+  }
+
+  // DETECT --------------------------------------------------------------------
+  /**
+   * @see Prefs#getUCDetectionInClasses()
+   */
+  public WarnLevel getUCDetectionInClasses() {
+    return detectClasses;
+  }
+
+  /**
+   * @see Prefs#isUCDetectionInClasses()
+   */
+  public boolean isUCDetectionInClasses() {
+    return WarnLevel.IGNORE != detectClasses;
+  }
+
+  /**
+   * @see Prefs#getUCDetectionInMethods()
+   */
+  public WarnLevel getUCDetectionInMethods() {
+    return detectMethods;
+  }
+
+  /**
+   * @see Prefs#isUCDetectionInMethods()
+   */
+  public boolean isUCDetectionInMethods() {
+    return WarnLevel.IGNORE != detectMethods;
+  }
+
+  /**
+   * @see Prefs#getUCDetectionInFields()
+   */
+  public WarnLevel getUCDetectionInFields() {
+    return detectFields;
+  }
+
+  /**
+   * @see Prefs#isUCDetectionInFields()
+   */
+  public boolean isUCDetectionInFields() {
+    return WarnLevel.IGNORE != detectFields;
+  }
+
+  /**
+   * @see Prefs#isUCDetectionInLiterals()
+   */
+  public boolean isUCDetectionInLiterals() {
+    return literals;
+  }
+
+  /**
+   * @see Prefs#isUCDetectionInLiteralsFullClassName()
+   */
+  public boolean isUCDetectionInLiteralsFullClassName() {
+    return literalsFullClassName;
+  }
+
+  /**
+   * @see Prefs#isUCDetectionInLiteralsSimpleClassName()
+   */
+  public boolean isUCDetectionInLiteralsSimpleClassName() {
+    return literalsSimpleClassName;
+  }
+
+  /**
+   * @see Prefs#getFilePatternLiteralSearch()
+   */
+  public String[] getFilePatternLiteralSearch() {
+    return filePatternLiteralSearch.clone();
+  }
+
+  /**
+   * @see Prefs#getWarnLimit()
+   */
+  public int getWarnLimit() {
+    return warnLimit;
+  }
+
+  // KEYWORD -------------------------------------------------------------------
+  /**
+   * @see Prefs#getVisibilityProtectedCheck(IJavaElement)
+   */
+  public WarnLevel getVisibilityProtectedCheck(IJavaElement javaElement) {
+    if (javaElement instanceof IType) {
+      return protectedClasses;
+    }
+    if (javaElement instanceof IMethod) {
+      return protectedMethods;
+    }
+    if (javaElement instanceof IField) {
+      return Prefs.isConstant((IField) javaElement) ? protectedConstants : protectedFields;
+    }
+    // Text search: member == null, initializer
+    return WarnLevel.WARNING;
+  }
+
+  /**
+   * @see Prefs#getVisibilityPrivateCheck(IJavaElement)
+   */
+  public WarnLevel getVisibilityPrivateCheck(IJavaElement javaElement) {
+    if (javaElement instanceof IType) {
+      return privateClasses;
+    }
+    if (javaElement instanceof IMethod) {
+      return privateMethods;
+    }
+    if (javaElement instanceof IField) {
+      return Prefs.isConstant((IField) javaElement) ? privateConstants : privateFields;
+    }
+    // Text search: member == null, initializer
+    return WarnLevel.WARNING;
+  }
+
+  /**
+   * @see Prefs#isVisibilityProtectedCheck(IJavaElement)
+   */
+  public boolean isVisibilityProtectedCheck(IJavaElement javaElement) {
+    return WarnLevel.IGNORE != getVisibilityProtectedCheck(javaElement);
+  }
+
+  /**
+   * @see Prefs#isVisibilityPrivateCheck(IJavaElement)
+   */
+  public boolean isVisibilityPrivateCheck(IJavaElement javaElement) {
+    return WarnLevel.IGNORE != getVisibilityPrivateCheck(javaElement);
+  }
+
+  /**
+   * @see Prefs#isVisibilityCheck(IJavaElement)
+   */
+  public boolean isVisibilityCheck(IJavaElement javaElement) {
+    return isVisibilityProtectedCheck(javaElement) || isVisibilityPrivateCheck(javaElement);
+  }
+
+  /**
+   * @see Prefs#isIgnoreSyntheticAccessEmulationWarning()
+   */
+  public boolean isIgnoreSyntheticAccessEmulationWarning() {
+    return ignoreSyntheticAccessEmulationWarning;
+  }
+
+  /**
+   * @see Prefs#getCheckUseFinalField()
+   */
+  public WarnLevel getCheckUseFinalField() {
+    return checkUseFinalField;
+  }
+
+  /**
+   * @see Prefs#isCheckUseFinalField()
+   */
+  public boolean isCheckUseFinalField() {
+    return WarnLevel.IGNORE != checkUseFinalField;
+  }
+
+  /**
+   * @see Prefs#getCheckUseFinalMethod()
+   */
+  public WarnLevel getCheckUseFinalMethod() {
+    return checkUseFinalMethod;
+  }
+
+  /**
+   * @see Prefs#isCheckUseFinalMethod()
+   */
+  public boolean isCheckUseFinalMethod() {
+    return WarnLevel.IGNORE != checkUseFinalMethod;
+  }
+
+  // PERFORMANCE ---------------------------------------------------------------
+  /**
+   * @see Prefs#getSearchThreads()
+   */
+  public int getSearchThreads() {
+    return searchThreads;
+  }
+
+  /**
+   * @see Prefs#isReferenceIndex()
+   */
+  public boolean isReferenceIndex() {
+    return referenceIndex;
+  }
+
+  /**
+   * @see Prefs#isBatchSearch()
+   */
+  public boolean isBatchSearch() {
+    return batchSearch;
+  }
+
+  /**
+   * @see Prefs#isReferenceCache()
+   */
+  public boolean isReferenceCache() {
+    return referenceCache;
+  }
+
+  /**
+   * @see Prefs#isLiteralCache()
+   */
+  public boolean isLiteralCache() {
+    return literalCache;
+  }
+
+  /**
+   * @see Prefs#getLineCacheSize()
+   */
+  public int getLineCacheSize() {
+    return lineCacheSize;
+  }
+
+  /**
+   * @return preferences changing the parsed java files of a line manager: lines to ignore and cache size.
+   * Detections with the same key can share a line manager
+   */
+  public String getLineManagerKey() {
+    return filterDeprecated + ";" + filterNoUcd + ";" + annotationFilter + ";" + lineCacheSize; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+  }
+
+  /**
+   * @see Prefs#isPreParse()
+   */
+  public boolean isPreParse() {
+    return preParse;
+  }
+
+  /**
+   * @see Prefs#isUpdateMarkers()
+   */
+  public boolean isUpdateMarkers() {
+    return updateMarkers;
+  }
+}
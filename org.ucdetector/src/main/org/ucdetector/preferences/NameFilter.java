@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2026 agent
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ucdetector.preferences;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.ucdetector.Log;
+
+/**
+ * Compiled filter of a preference like "packageFilter" or "classFilter".<p>
+ * The regular expressions of the filter are compiled once: All positive expressions are combined to a single
+ * pattern <code>(?:regex1)|(?:regex2)</code>, unless one of them contains a back reference. Negative expressions (<code>!regex</code>) are compiled one by one:
+ * A name matches, when it does not match one of them.
+ * <p>
+ * Instances are immutable, so they can be used by several threads.
+ * <p>
+ * @author agent
+ * @since 2026-10-17
+ */
+final class NameFilter {
+  /** back reference like <code>\1</code> or <code>\k&lt;name&gt;</code>, not preceded by an escaping backslash */
+  private static final Pattern BACK_REFERENCE = Pattern.compile("(?<!\\\\)(?:\\\\\\\\)*\\\\(?:[1-9]|k<)"); //$NON-NLS-1$
+  /** usually one combined pattern, or single patterns, when the combined pattern can't be compiled */
+  private final Pattern[] positives;
+  private final Pattern[] negatives;
+
+  /**
+   * @param filterName name of the filter preference, for logging
+   * @param regexes java regular expressions parsed from the preference. Empty expressions are ignored
+   */
+  NameFilter(String filterName, String[] regexes) {
+    List<Pattern> positiveList = new ArrayList<Pattern>();
+    List<Pattern> negativeList = new ArrayList<Pattern>();
+    for (String regex : regexes) {
+      // IPackageFragmentRoot can be "", filter can be ""
+      if (regex.length() == 0) {
+        continue;
+      }
+      boolean negate = regex.startsWith("!"); //$NON-NLS-1$
+      try {
+        if (negate) {
+          negativeList.add(Pattern.compile(regex.substring(1)));
+        }
+        else {
+          positiveList.add(Pattern.compile(regex));
+        }
+      }
+      catch (PatternSyntaxException e) {
+        Log.warn("Ignore filter %s='%s': %s", filterName, regex, e); //$NON-NLS-1$
+      }
+    }
+    this.positives = combine(positiveList);
+    this.negatives = negativeList.toArray(new Pattern[negativeList.size()]);
+  }
+
+  /**
+   * @return one pattern matching, when one of the patterns matches. Patterns containing back references are not
+   * combined, because the groups they refer to are numbered differently in the combined pattern
+   */
+  private static Pattern[] combine(List<Pattern> patterns) {
+    if (patterns.size() > 1 && !containsBackReference(patterns)) {
+      StringBuilder sb = new StringBuilder();
+      for (Pattern pattern : patterns) {
+        sb.append(sb.length() == 0 ? "" : "|").append("(?:").append(pattern.pattern()).append(')'); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      }
+      try {
+        return new Pattern[] { Pattern.compile(sb.toString()) };
+      }
+      catch (PatternSyntaxException e) {
+        // use single patterns
+      }
+    }
+    return patterns.toArray(new Pattern[patterns.size()]);
+  }
+
+  private static boolean containsBackReference(List<Pattern> patterns) {
+    for (Pattern pattern : patterns) {
+      if (BACK_REFERENCE.matcher(pattern.pattern()).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(positives) + "!" + Arrays.toString(negatives); //$NON-NLS-1$
+  }
+
+  /**
+   * @return <code>true</code>, when the filter contains no expressions, so no name matches
+   */
+  boolean isEmpty() {
+    return positives.length == 0 && negatives.length == 0;
+  }
+
+  /**
+   * @return <code>true</code>, when the name matches one of the positive expressions,
+   *         or does not match one of the negative expressions
+   */
+  boolean matches(String elementName) {
+    for (Pattern positive : positives) {
+      if (positive.matcher(elementName).matches()) {
+        return true;
+      }
+    }
+    for (Pattern negative : negatives) {
+      if (!negative.matcher(elementName).matches()) {
+        Log.debug("IGNORE: Negative filter '!%s' matches: '%s'", negative.pattern(), elementName); //$NON-NLS-1$
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -74,6 +74,16 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
     for (ReportExtension extension : ReportExtension.getAllExtensions()) {
       store.setDefault(Prefs.getReportStoreKey(extension), true);
     }
+    // PERFORMANCE -------------------------------------------------------------
+    store.setDefault(Prefs.PERFORMANCE_SEARCH_THREADS, 1);
+    store.setDefault(Prefs.PERFORMANCE_REFERENCE_INDEX, false);
+    store.setDefault(Prefs.PERFORMANCE_BATCH_SEARCH, false);
+    store.setDefault(Prefs.PERFORMANCE_REFERENCE_CACHE, false);
+    store.setDefault(Prefs.PERFORMANCE_LITERAL_CACHE, false);
+    store.setDefault(Prefs.PERFORMANCE_INCREMENTAL, false);
+    store.setDefault(Prefs.PERFORMANCE_LINE_CACHE_SIZE, 64);
+    store.setDefault(Prefs.PERFORMANCE_PRE_PARSE, false);
+    store.setDefault(Prefs.PERFORMANCE_UPDATE_MARKERS, false);
     // LOGGING -------------------------------------------------------------------
     store.setDefault(Prefs.LOG_LEVEL, LogLevel.INFO.toString());
     store.setDefault(Prefs.LOG_TO_ECLIPSE, false);
@@ -9,8 +9,8 @@ package org.ucdetector.preferences;
 
 import static org.ucdetector.UCDetectorPlugin.ID;
 
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.IField;
@@ -93,6 +93,18 @@ public final class Prefs {
   static final String         REPORT_CREATE_XML = REPORT_CREATE + ".xml";
   //  private static final String REPORT_CREATE_EXTENSION = ID + ".extension";
 
+  // PERFORMANCE --------------------------------------------------------------
+  public static final String PERFORMANCE_PREFIX  = ID + ".performance";
+  static final String PERFORMANCE_SEARCH_THREADS = PERFORMANCE_PREFIX + ".searchThreads";
+  static final String PERFORMANCE_REFERENCE_INDEX = PERFORMANCE_PREFIX + ".referenceIndex";
+  static final String PERFORMANCE_BATCH_SEARCH    = PERFORMANCE_PREFIX + ".batchSearch";
+  static final String PERFORMANCE_REFERENCE_CACHE = PERFORMANCE_PREFIX + ".referenceCache";
+  static final String PERFORMANCE_LITERAL_CACHE  = PERFORMANCE_PREFIX + ".literalCache";
+  static final String PERFORMANCE_INCREMENTAL    = PERFORMANCE_PREFIX + ".incrementalDetection";
+  static final String PERFORMANCE_LINE_CACHE_SIZE = PERFORMANCE_PREFIX + ".lineCacheSize";
+  static final String PERFORMANCE_PRE_PARSE      = PERFORMANCE_PREFIX + ".preParse";
+  static final String PERFORMANCE_UPDATE_MARKERS = PERFORMANCE_PREFIX + ".updateMarkers";
+
   public static final String LOG_LEVEL      = ID + ".log.level";
   public static final String LOG_TO_ECLIPSE = ID + ".log.toEclipse";
 
@@ -235,13 +247,20 @@ public final class Prefs {
    * @return <code>true</code>, when this filter is active
    */
   public static boolean isFilterClassContainingString() {
-    String[] strings = getStrings(FILTER_CONTAIN_STRING, true);
-    for (String string : strings) {
-      if (string.length() > 0) {
-        return true;
+    return getFilterClassContainingStrings().length > 0;
+  }
+
+  /**
+   * @return strings of the filter "class containing string", without empty strings. Strings are not trimmed
+   */
+  static String[] getFilterClassContainingStrings() {
+    List<String> result = new ArrayList<String>();
+    for (String string : getStrings(FILTER_CONTAIN_STRING, false)) {
+      if (string.trim().length() > 0) {
+        result.add(string);
       }
     }
-    return false;
+    return result.toArray(new String[result.size()]);
   }
 
   /**
@@ -249,12 +268,9 @@ public final class Prefs {
    * @return <code>true</code>, the class contains one of the strings
    */
   public static boolean isFilterClassContainingString(String classAsString) {
-    String[] stringsToFindInFile = getStrings(FILTER_CONTAIN_STRING, false);
-    for (String stringToFindInFile : stringsToFindInFile) {
-      if (stringToFindInFile.trim().length() > 0) {
-        if (classAsString != null && classAsString.contains(stringToFindInFile)) {
-          return true;
-        }
+    for (String stringToFindInFile : getFilterClassContainingStrings()) {
+      if (classAsString != null && classAsString.contains(stringToFindInFile)) {
+        return true;
       }
     }
     return false;
@@ -357,6 +373,76 @@ public final class Prefs {
     return warnLimit < 0 ? 0 : warnLimit;
   }
 
+  // PERFORMANCE GROUP ---------------------------------------------------------
+  /**
+   * @return number of threads used to search classes, methods, fields. <code>1</code> means no parallel search.
+   * Values lower than <code>1</code> mean: Use one thread for each available processor
+   */
+  public static int getSearchThreads() {
+    int threads = getStore().getInt(PERFORMANCE_SEARCH_THREADS);
+    return threads < 1 ? Runtime.getRuntime().availableProcessors() : threads;
+  }
+
+  /**
+   * @return <code>true</code>, when all source files should be parsed once to create a reference index,
+   * instead of running a java search for each class, method, field
+   */
+  public static boolean isReferenceIndex() {
+    return getBoolean(PERFORMANCE_REFERENCE_INDEX);
+  }
+
+  /**
+   * @return <code>true</code>, when methods and fields of a class should be searched together in a single java search
+   */
+  public static boolean isBatchSearch() {
+    return getBoolean(PERFORMANCE_BATCH_SEARCH);
+  }
+
+  /**
+   * @return <code>true</code>, when search results should be kept in a cache file for the next UCDetector run.
+   * Not used, when {@link #isReferenceIndex()} is <code>true</code>
+   */
+  public static boolean isReferenceCache() {
+    return getBoolean(PERFORMANCE_REFERENCE_CACHE);
+  }
+
+  /**
+   * @return <code>true</code>, when class names found in text files should be kept in a cache file for the next run
+   */
+  public static boolean isLiteralCache() {
+    return getBoolean(PERFORMANCE_LITERAL_CACHE);
+  }
+
+  /**
+   * @return <code>true</code>, when changed java files and the elements they reference should be detected after each build
+   */
+  public static boolean isIncrementalDetection() {
+    return getBoolean(PERFORMANCE_INCREMENTAL);
+  }
+
+  /**
+   * @return maximum memory in megabytes used to keep parsed java files, to find source code lines.
+   * Values lower than <code>1</code> mean: No limit
+   */
+  public static int getLineCacheSize() {
+    return getStore().getInt(PERFORMANCE_LINE_CACHE_SIZE);
+  }
+
+  /**
+   * @return <code>true</code>, when all java files are parsed in batches before searching
+   */
+  public static boolean isPreParse() {
+    return getBoolean(PERFORMANCE_PRE_PARSE);
+  }
+
+  /**
+   * @return <code>true</code>, when only changed markers should be created and deleted,
+   * instead of deleting all markers before a detection
+   */
+  public static boolean isUpdateMarkers() {
+    return getBoolean(PERFORMANCE_UPDATE_MARKERS);
+  }
+
   // KEYWORD GROUP -------------------------------------------------------------
   // VISIBILITY PROTECTED -----------------------
   /**
@@ -429,7 +515,7 @@ public final class Prefs {
     return isVisibilityProtectedCheck(javaElement) || isVisibilityPrivateCheck(javaElement);
   }
 
-  private static boolean isConstant(IMember member) {
+  static boolean isConstant(IMember member) {
     try {
       return Flags.isStatic(member.getFlags()) && Flags.isFinal(member.getFlags());
     }
@@ -544,31 +630,14 @@ public final class Prefs {
    * found in the preference filteName.<br>
    */
   private static boolean isMatchFilter(String filterName, String elementName) {
-    String[] filters = parseFilters(filterName);
-    for (String regex : filters) {
-      try {
-        // IPackageFragmentRoot can be "", filter can be ""
-        if (regex.length() == 0) {
-          continue;
-        }
-        boolean negate = regex.startsWith("!");
-        if (negate) {
-          String realRegex = regex.substring(1);
-          if (!Pattern.matches(realRegex, elementName)) {
-            Log.debug("IGNORE: Negative filter '%s' matches: '%s'", regex, elementName);
-            return true;
-          }
-          continue;
-        }
-        if (Pattern.matches(regex, elementName)) {
-          return true;
-        }
-      }
-      catch (PatternSyntaxException e) {
-        Log.warn("isMatchFilter(%s, %s): %s", filterName, elementName, e);
-      }
-    }
-    return false;
+    return createNameFilter(filterName).matches(elementName);
+  }
+
+  /**
+   * @return compiled filter. {@link DetectionConfig} creates the filters once for each detection
+   */
+  static NameFilter createNameFilter(String filterName) {
+    return new NameFilter(filterName, parseFilters(filterName));
   }
 
   /**
@@ -617,7 +686,7 @@ public final class Prefs {
     return getStore().getBoolean(name);
   }
 
-  private static WarnLevel getWarnLevel(String name) {
+  static WarnLevel getWarnLevel(String name) {
     return WarnLevel.valueOf(getString(name));
   }
 }
@@ -13,7 +13,11 @@ import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IJavaElement;
@@ -36,11 +40,64 @@ import org.ucdetector.util.MarkerFactory;
 public class MarkerReport implements IUCDetectorReport {
   /** Don't create each marker. Do a batch creation instead */
   private static final int MARKERS_FLASH_LIMIT = 10;
+  /** The batch size doubles after each batch, up to this limit */
+  private static final int MARKERS_FLASH_LIMIT_MAX = 2000;
+  /** Create markers at least every 2 seconds, so users see progress */
+  private static final long MARKERS_FLASH_MILLIS = 2000L;
   private final List<ReportParam> markersToFlash = new ArrayList<ReportParam>();
   private int totalMarkerCount = 0;
+  private int flashLimit = MARKERS_FLASH_LIMIT;
+  private long lastFlash = System.currentTimeMillis();
+  /**
+   * key -> marker existing before the detection. Markers found again are removed, the remaining markers
+   * are deleted at the end of the detection. <code>null</code>, when all markers are created
+   */
+  private Map<String, IMarker> oldMarkers = null;
+  /** old markers having the same key as an other old marker */
+  private final List<IMarker> duplicateMarkers = new ArrayList<IMarker>();
+  private int unchangedMarkerCount = 0;
+  private int updatedMarkerCount = 0;
+
+  /**
+   * Remember the existing markers of the javaElements, to create only new markers
+   * @param javaElements elements selected in user interface
+   * @throws CoreException when there are problem reading markers
+   */
+  public void collectOldMarkers(IJavaElement[] javaElements) throws CoreException {
+    if (oldMarkers == null) {
+      oldMarkers = new HashMap<String, IMarker>();
+    }
+    for (IJavaElement javaElement : javaElements) {
+      IResource resource = javaElement.getResource();
+      if (resource == null) {
+        continue;
+      }
+      for (IMarker marker : resource.findMarkers(MarkerFactory.UCD_MARKER_TYPE_PREFIX, true,
+          IResource.DEPTH_INFINITE)) {
+        String key = createKey(marker.getResource(), marker.getType(), marker.getAttributes());
+        IMarker other = oldMarkers.put(key, marker);
+        if (other != null && !other.equals(marker)) {
+          duplicateMarkers.add(other);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return key of a marker: resource, marker type, JAVA_NAME, JAVA_TYPE, char range
+   */
+  private static String createKey(IResource resource, String markerType, Map<?, ?> attributes) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(resource.getFullPath()).append('|').append(markerType);
+    sb.append('|').append(attributes.get(MarkerFactory.JAVA_NAME));
+    sb.append('|').append(attributes.get(MarkerFactory.JAVA_TYPE));
+    sb.append('|').append(attributes.get(IMarker.CHAR_START));
+    sb.append('|').append(attributes.get(IMarker.CHAR_END));
+    return sb.toString();
+  }
 
   @SuppressWarnings("boxing")
-  private static void createMarker(ReportParam reportParam) throws CoreException {
+  private void createMarker(ReportParam reportParam) throws CoreException {
     WarnLevel level = reportParam.getLevel();
     if (level == WarnLevel.IGNORE) {
       return;
@@ -48,7 +105,6 @@ public class MarkerReport implements IUCDetectorReport {
     int severity = (level == WarnLevel.ERROR) ? IMarker.SEVERITY_ERROR : IMarker.SEVERITY_WARNING;
     IMember javaElement = reportParam.getJavaElement();
     ISourceRange range = javaElement.getNameRange();
-    IMarker marker = javaElement.getResource().createMarker(reportParam.getMarkerType());
     // Increase speed, use map:
     Map<String, Object> attributes = new HashMap<String, Object>();
     attributes.put(IMarker.SEVERITY, severity);
@@ -60,9 +116,48 @@ public class MarkerReport implements IUCDetectorReport {
     attributes.put(IMarker.CHAR_END, range.getOffset() + range.getLength());
     attributes.put(MarkerFactory.JAVA_NAME, javaElement.getElementName());
     attributes.put(MarkerFactory.JAVA_TYPE, getElementType(javaElement).toString());
+    if (oldMarkers != null) {
+      String key = createKey(javaElement.getResource(), reportParam.getMarkerType(), attributes);
+      IMarker oldMarker = oldMarkers.remove(key);
+      if (oldMarker != null && oldMarker.exists()) {
+        updateMarker(oldMarker, attributes);
+        return;
+      }
+    }
+    IMarker marker = javaElement.getResource().createMarker(reportParam.getMarkerType());
     marker.setAttributes(attributes);
   }
 
+  /**
+   * Change an old marker only, when the message, severity or line changed
+   */
+  private void updateMarker(IMarker oldMarker, Map<String, Object> attributes) throws CoreException {
+    for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+      if (!attribute.getValue().equals(oldMarker.getAttribute(attribute.getKey()))) {
+        oldMarker.setAttributes(attributes);
+        updatedMarkerCount++;
+        return;
+      }
+    }
+    unchangedMarkerCount++;
+  }
+
+  /**
+   * Delete old markers, which were not found again by this detection
+   */
+  private void deleteOldMarkers() throws CoreException {
+    List<IMarker> markersToDelete = new ArrayList<IMarker>(oldMarkers.values());
+    markersToDelete.addAll(duplicateMarkers);
+    if (!markersToDelete.isEmpty()) {
+      ResourcesPlugin.getWorkspace().deleteMarkers(markersToDelete.toArray(new IMarker[markersToDelete.size()]));
+    }
+    Log.info("%s markers unchanged, %s markers updated, %s markers deleted", //$NON-NLS-1$
+        Integer.valueOf(unchangedMarkerCount), Integer.valueOf(updatedMarkerCount),
+        Integer.valueOf(markersToDelete.size()));
+    oldMarkers = null;
+    duplicateMarkers.clear();
+  }
+
   /**
    * @return a ElementType based on javaElement
    */
@@ -137,29 +232,45 @@ public class MarkerReport implements IUCDetectorReport {
     totalMarkerCount++;
     // Waiting for first 10 markers - ID: 2787576
     // Flush all markers at the begin, so users can start using UCDetector results
-    if (totalMarkerCount < MARKERS_FLASH_LIMIT || markersToFlash.size() >= MARKERS_FLASH_LIMIT) {
+    if (totalMarkerCount < MARKERS_FLASH_LIMIT || markersToFlash.size() >= flashLimit
+        || System.currentTimeMillis() - lastFlash >= MARKERS_FLASH_MILLIS) {
       flushReport();
     }
     return true;
   }
 
   /**
-   * Create markers and clean cache;
+   * Create markers in one workspace operation and clean cache;
    */
   private void flushReport() throws CoreException {
+    if (markersToFlash.isEmpty()) {
+      return;
+    }
     if (Log.isDebug()) {
       Log.debug("flushReport will create %s markers", Integer.valueOf(markersToFlash.size()));//$NON-NLS-1$
     }
-    for (ReportParam reportParamToCreate : markersToFlash) {
-      createMarker(reportParamToCreate);
-    }
+    MarkerFactory.runInWorkspace(new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        for (ReportParam reportParamToCreate : markersToFlash) {
+          createMarker(reportParamToCreate);
+        }
+      }
+    });
     markersToFlash.clear();
+    lastFlash = System.currentTimeMillis();
+    if (totalMarkerCount >= MARKERS_FLASH_LIMIT) {
+      flashLimit = Math.min(flashLimit * 2, MARKERS_FLASH_LIMIT_MAX);
+    }
   }
 
   @Override
   public void endReport() throws CoreException {
     flushReport();
     Log.info(totalMarkerCount + " markers created"); //$NON-NLS-1$
+    if (oldMarkers != null) {
+      deleteOldMarkers();
+    }
   }
 
   @Override
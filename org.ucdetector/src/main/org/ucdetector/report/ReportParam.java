@@ -19,7 +19,7 @@ import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IType;
-import org.ucdetector.preferences.Prefs;
+import org.ucdetector.preferences.DetectionConfig;
 import org.ucdetector.preferences.WarnLevel;
 import org.ucdetector.search.LineManger;
 
@@ -58,56 +58,73 @@ public class ReportParam {
     return sb.toString();
   }
 
+  /** Reads the warn level from the preferences. Use it outside of a detection only */
   public ReportParam(IMember javaElement, String message, int line, String markerType) {
-    this(javaElement, message, line, markerType, null, -1);
+    this(DetectionConfig.create(), javaElement, message, line, markerType);
   }
 
+  /** Reads the warn level from the preferences. Use it outside of a detection only */
   public ReportParam(IMember javaElement, String message, int line, String markerType, int referenceCount) {
-    this(javaElement, message, line, markerType, null, referenceCount);
+    this(DetectionConfig.create(), javaElement, message, line, markerType, referenceCount);
   }
 
   public ReportParam(IMember javaElement, String message, int line, String markerType, WarnLevel warnLevel) {
     this(javaElement, message, line, markerType, warnLevel, -1);
   }
 
+  /**
+   * @param config preferences of the detection, to get the warn level
+   */
+  public ReportParam(DetectionConfig config, IMember javaElement, String message, int line, String markerType) {
+    this(config, javaElement, message, line, markerType, -1);
+  }
+
+  /**
+   * @param config preferences of the detection, to get the warn level
+   */
+  public ReportParam(DetectionConfig config, IMember javaElement, String message, int line, String markerType,
+      int referenceCount) {
+    this(javaElement, message, line, markerType, calculateWarnLevel(config, javaElement, markerType), referenceCount);
+  }
+
   private ReportParam(IMember javaElement, String message, int line, String markerType, WarnLevel warnLevel,
       int referenceCount) {
     this.javaElement = javaElement;
     this.message = message;
     this.line = line;
     this.markerType = markerType;
-    this.level = warnLevel == null ? calculateWarnLevel() : warnLevel;
+    this.level = warnLevel;
     this.referenceCount = referenceCount;
-    this.author = LineManger.getAuthor(javaElement);
+    this.author = lineManager == null ? null : lineManager.getAuthor(javaElement);
     this.lineStart = lineManager == null ? LineManger.LINE_NOT_FOUND : lineManager.getLineStart(javaElement);
     this.lineEnd = lineManager == null ? LineManger.LINE_NOT_FOUND : lineManager.getLineEnd(javaElement);
   }
 
-  private WarnLevel calculateWarnLevel() {
+  private static WarnLevel calculateWarnLevel(DetectionConfig config, IMember javaElement, String markerType) {
     WarnLevel warnLevel = null;
     if (UCD_MARKER_TYPE_UNUSED.equals(markerType) || UCD_MARKER_TYPE_USED_FEW.equals(markerType)) {
-      if (getJavaElement() instanceof IType) {
-        warnLevel = Prefs.getUCDetectionInClasses();
+      if (javaElement instanceof IType) {
+        warnLevel = config.getUCDetectionInClasses();
       }
-      else if (getJavaElement() instanceof IMethod) {
-        warnLevel = Prefs.getUCDetectionInMethods();
+      else if (javaElement instanceof IMethod) {
+        warnLevel = config.getUCDetectionInMethods();
       }
-      else if (getJavaElement() instanceof IField) {
-        warnLevel = Prefs.getUCDetectionInFields();
+      else if (javaElement instanceof IField) {
+        warnLevel = config.getUCDetectionInFields();
       }
     }
     else if (UCD_MARKER_TYPE_USE_PROTECTED.equals(markerType) || UCD_MARKER_TYPE_USE_DEFAULT.equals(markerType)) {
-      warnLevel = Prefs.getVisibilityProtectedCheck(getJavaElement());
+      warnLevel = config.getVisibilityProtectedCheck(javaElement);
     }
     else if (UCD_MARKER_TYPE_USE_PRIVATE.equals(markerType)) {
-      warnLevel = Prefs.getVisibilityPrivateCheck(getJavaElement());
+      warnLevel = config.getVisibilityPrivateCheck(javaElement);
     }
     else if (UCD_MARKER_TYPE_USE_FINAL.equals(markerType)) {
-      if (getJavaElement() instanceof IMethod) {
-        warnLevel = Prefs.getCheckUseFinalMethod();
+      if (javaElement instanceof IMethod) {
+        warnLevel = config.getCheckUseFinalMethod();
       }
-      else if (getJavaElement() instanceof IField) {
-        warnLevel = Prefs.getCheckUseFinalField();
+      else if (javaElement instanceof IField) {
+        warnLevel = config.getCheckUseFinalField();
       }
     }
     return warnLevel == null ? WarnLevel.WARNING : warnLevel;
@@ -7,13 +7,17 @@
  */
 package org.ucdetector.report;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.StringWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,14 +26,14 @@ import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.Result;
-import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -59,10 +63,11 @@ import org.ucdetector.util.JavaElementUtil;
 import org.ucdetector.util.JavaElementUtil.MemberInfo;
 import org.ucdetector.util.MarkerFactory;
 import org.ucdetector.util.StopWatch;
-import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Document;
-import org.w3c.dom.DocumentType;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
 
 /**
  * Creates text report files like:
@@ -72,7 +77,9 @@ import org.w3c.dom.Element;
  * <li>text</li>
  * </ul>
  * This class uses xslt transformation.<br>
- * This class tries not to throw Exceptions.
+ * This class tries not to throw Exceptions.<br>
+ * Markers and problems are written to temporary files as they arrive. Only the statistics are kept in memory.
+ * The xml file is put together at the end.
  * @see "src/main/org/ucdetector/report/html.xslt"
  * <p>
  * @author Joerg Spieler
@@ -91,11 +98,12 @@ public class XmlReport implements IUCDetectorReport {
           + "     http://www.eclipse.org/legal/epl-v10.html\n"
           + "     ========================================================================\n";
 
+  /** Creates the elements. Only the statistics are appended to the document */
   private Document doc;
 
   private Element statistcs;
-  private Element markers;
-  private Element problems;
+  private XmlFragment markers;
+  private XmlFragment problems;
   private Element abouts;
 
   private int markerCount;
@@ -133,20 +141,11 @@ public class XmlReport implements IUCDetectorReport {
     }
     try {
       DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-      DOMImplementation domImpl = builder.getDOMImplementation();
-      DocumentType docType = null;// domImpl.createDocumentType("ucdetector", null, dtdFile);
-      doc = domImpl.createDocument(null, "ucdetector", docType);
-      Element root = doc.getDocumentElement();
-
-      String stylesheet = String.format("type=\"text/xsl\" href=\"%s/%s\"", ICONS_DIR, HTML_XSLT);
-      doc.insertBefore(doc.createProcessingInstruction("xml-stylesheet", stylesheet), root);
-      doc.insertBefore(doc.createComment(COPY_RIGHT), root);
-      doc.insertBefore(doc.createComment("\n"), root);
-
-      statistcs = appendChild(root, "statistics");
-      markers = appendChild(root, "markers");
-      problems = appendChild(root, "problems");
+      doc = builder.getDOMImplementation().createDocument(null, "ucdetector", null);
+      statistcs = appendChild(doc.getDocumentElement(), "statistics");
       abouts = appendChild(statistcs, "abouts", null);
+      markers = new XmlFragment("markers");
+      problems = new XmlFragment("problems");
     }
     catch (Throwable e) {
       Log.error("Can't create xml report: ", e);
@@ -181,8 +180,7 @@ public class XmlReport implements IUCDetectorReport {
     Element marker = null;
     try {
       markerCount++;
-      //markers.appendChild(doc.createComment(" === Marker number " + markerCount));
-      marker = appendChild(markers, "marker");
+      marker = doc.createElement("marker");
       setMarkerAttributes(reportParam, marker);
 
       IMember javaElement = reportParam.getJavaElement();
@@ -227,10 +225,6 @@ public class XmlReport implements IUCDetectorReport {
       if (reportParam.getAuthor() != null) {
         appendChild(marker, "author", reportParam.getAuthorTrimmed());
       }
-      if (UCDetectorPlugin.isHeadlessMode() && markerCount % 50 == 0) {
-        Log.info("Flush reports!");
-        writeReports(false);
-      }
     }
     catch (Throwable ex) {
       Log.error("XML problems", ex);
@@ -238,6 +232,13 @@ public class XmlReport implements IUCDetectorReport {
         appendChild(marker, "ExceptionForCreatingMarker", ex.getMessage());
       }
     }
+    if (marker != null) {
+      markers.write(marker);
+      // Markers are on disk, when the process is killed
+      if (UCDetectorPlugin.isHeadlessMode() && markerCount % 50 == 0) {
+        markers.flush();
+      }
+    }
     return true;
   }
 
@@ -275,9 +276,13 @@ public class XmlReport implements IUCDetectorReport {
   @Override
   public void reportDetectionProblem(IStatus status) {
     detectionProblemCount++;
-    Element problem = appendChild(problems, "problem");
+    if (problems == null) {
+      return;
+    }
+    Element problem = doc.createElement("problem");
     appendChild(problem, "status", status.toString());
     appendChild(problem, "exception", UCDetectorPlugin.exceptionToString(status.getException()));
+    problems.write(problem);
   }
 
   /** Create a <code>Status</code> and log it to the Eclipse log */
@@ -372,6 +377,10 @@ public class XmlReport implements IUCDetectorReport {
   public void endReport() throws CoreException {
     endReportCalled = true;
     writeReports(true);
+    if (markers != null) {
+      markers.delete();
+      problems.delete();
+    }
   }
 
   /** Write report to xml file, do xslt transformation to an html file or text file   */
@@ -392,21 +401,29 @@ public class XmlReport implements IUCDetectorReport {
       return;
     }
     appendStatistics(isEndReport);
+    // Needed before the xml file is read: xml file references the dtd
     copyFilesToDotIconDir(reportDir);
+    File tempFile = null;
     try {
+      String reportName = ReportNameManager.getReportFileName(Prefs.getReportFile(), objectsToIterate);
+      File xmlFile;
+      if (Prefs.isCreateReportXML()) {
+        xmlFile = new File(reportDir, reportName + ".xml");
+      }
+      else {
+        // xslt transformations read the xml file
+        tempFile = File.createTempFile("ucdetector", ".xml", reportDir);
+        xmlFile = tempFile;
+      }
+      writeXmlFile(xmlFile);
       List<ReportExtension> xsltExtensions = ReportExtension.getXsltExtensions();
       for (ReportExtension xsltExtension : xsltExtensions) {
         if (Prefs.isCreateReport(xsltExtension)) {
-          String reportName = ReportNameManager.getReportFileName(xsltExtension.getResultFile(), objectsToIterate);
-          File resultFile = new File(reportDir, reportName);
-          writeTextFile(doc, resultFile, xsltExtension.getXslt());
+          String resultName = ReportNameManager.getReportFileName(xsltExtension.getResultFile(), objectsToIterate);
+          File resultFile = new File(reportDir, resultName);
+          writeTextFile(xmlFile, resultFile, xsltExtension.getXslt());
         }
       }
-      String reportName = ReportNameManager.getReportFileName(Prefs.getReportFile(), objectsToIterate);
-      if (Prefs.isCreateReportXML()) {
-        File xmlFile = new File(reportDir, reportName + ".xml");
-        writeDocumentToFile(doc, xmlFile);
-      }
       long duration = System.currentTimeMillis() - start;
       Log.info("Created reports in: %s", StopWatch.timeAsString(duration));
       if (isEndReport) {
@@ -416,6 +433,11 @@ public class XmlReport implements IUCDetectorReport {
     catch (Exception e) {
       logEndReportMessage(Messages.XMLReport_WriteError, IStatus.ERROR, e, reportPath);
     }
+    finally {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
   }
 
   private static void copyFilesToDotIconDir(File reportDir) {
@@ -478,12 +500,11 @@ public class XmlReport implements IUCDetectorReport {
     }
   }
 
-  private static void writeTextFile(Document doc, File file, String xslt) throws IOException, TransformerException {
-    String text = transformToText(doc, xslt);
+  private static void writeTextFile(File xmlFile, File file, String xslt) throws IOException, TransformerException {
     OutputStreamWriter writer = null;
     try {
       writer = new OutputStreamWriter(new FileOutputStream(file), UCDetectorPlugin.UTF_8);
-      writer.write(text);
+      transform(xmlFile, xslt, new StreamResult(writer));
     }
     finally {
       UCDetectorPlugin.closeSave(writer);
@@ -491,52 +512,84 @@ public class XmlReport implements IUCDetectorReport {
     Log.info("Wrote file= " + UCDetectorPlugin.getCanonicalPath(file));
   }
 
-  private static void writeDocumentToFile(Document docToWrite, File file) throws IOException, TransformerException {
-    Source source = new DOMSource(docToWrite);
-    TransformerFactory tf = TransformerFactory.newInstance();
-    Transformer xformer = tf.newTransformer();
-    try {
-      String dtdFile = String.format("%s/%s", ICONS_DIR, DTD_FILE);
-      xformer.setOutputProperty(OutputKeys.METHOD, "xml");
-      xformer.setOutputProperty(OutputKeys.INDENT, "yes");
-      xformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, dtdFile);
-      xformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-      xformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-      xformer.setOutputProperty("{http://xml.apache.org/xalan}indent-amount", "2");
-      // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=6296446
-      tf.setAttribute("indent-number", Integer.valueOf(2));// Broken for java 1.5
-    }
-    catch (IllegalArgumentException ignore) {
-      Log.warn("Can't change output format: " + ignore);
-    }
-    OutputStreamWriter writer = null;
+  /**
+   * Put the xml file together: statistics, then markers and problems copied from their temporary files
+   */
+  private void writeXmlFile(File file) throws IOException, XMLStreamException {
+    markers.flush();
+    problems.flush();
+    Writer writer = null;
     try {
-      writer = new OutputStreamWriter(new FileOutputStream(file), UCDetectorPlugin.UTF_8);
-      Result result = new StreamResult(writer);
-      xformer.transform(source, result);
+      writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UCDetectorPlugin.UTF_8));
+      XMLStreamWriter out = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+      out.writeStartDocument(UCDetectorPlugin.UTF_8, "1.0");
+      writeIndent(out, 0);
+      String stylesheet = String.format("type=\"text/xsl\" href=\"%s/%s\"", ICONS_DIR, HTML_XSLT);
+      out.writeProcessingInstruction("xml-stylesheet", stylesheet);
+      writeIndent(out, 0);
+      out.writeComment(COPY_RIGHT);
+      writeIndent(out, 0);
+      out.writeComment("\n");
+      writeIndent(out, 0);
+      out.writeDTD(String.format("<!DOCTYPE ucdetector SYSTEM \"%s/%s\">", ICONS_DIR, DTD_FILE));
+      writeIndent(out, 0);
+      out.writeStartElement("ucdetector");
+      writeElement(out, statistcs, 1);
+      markers.copyTo(out, writer);
+      problems.copyTo(out, writer);
+      writeIndent(out, 0);
+      out.writeEndElement();
+      out.writeEndDocument();
+      out.close();
     }
     finally {
       UCDetectorPlugin.closeSave(writer);
     }
-    Log.info("Wrote file= " + UCDetectorPlugin.getCanonicalPath(file));
+    if (Prefs.isCreateReportXML()) {
+      Log.info("Wrote file= " + UCDetectorPlugin.getCanonicalPath(file));
+    }
+  }
+
+  /** Write an element and its children, indented by 2 spaces for each level */
+  private static void writeElement(XMLStreamWriter out, Element element, int depth) throws XMLStreamException {
+    writeIndent(out, depth);
+    out.writeStartElement(element.getTagName());
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Node attribute = attributes.item(i);
+      out.writeAttribute(attribute.getNodeName(), attribute.getNodeValue());
+    }
+    boolean hasChildElements = false;
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child instanceof Element) {
+        writeElement(out, (Element) child, depth + 1);
+        hasChildElements = true;
+      }
+      else if (child instanceof Text) {
+        out.writeCharacters(child.getNodeValue());
+      }
+    }
+    if (hasChildElements) {
+      writeIndent(out, depth);
+    }
+    out.writeEndElement();
   }
 
-  /** Transform from xml to text using xslt transformation
-   * @throws TransformerException */
-  private static String transformToText(Document xmlDoc, String xslt) throws TransformerException {
-    StringWriter stringWriter = new StringWriter();
-    transform(xmlDoc, xslt, new StreamResult(stringWriter));
-    return stringWriter.toString();
+  private static void writeIndent(XMLStreamWriter out, int depth) throws XMLStreamException {
+    StringBuilder sb = new StringBuilder("\n");
+    for (int i = 0; i < depth; i++) {
+      sb.append("  ");
+    }
+    out.writeCharacters(sb.toString());
   }
 
-  private static void transform(Document xmlDoc, String xslt, Result result) throws TransformerException {
+  private static void transform(File xmlFile, String xslt, Result result) throws TransformerException {
     InputStream inStream = null;
     try {
       inStream = XmlReport.class.getClassLoader().getResourceAsStream(xslt);
       Templates template = TransformerFactory.newInstance().newTemplates(new StreamSource(inStream));
       Transformer transformer = template.newTransformer();
-      Source source = new DOMSource(xmlDoc);
-      transformer.transform(source, result);
+      transformer.transform(new StreamSource(xmlFile), result);
     }
     finally {
       UCDetectorPlugin.closeSave(inStream);
@@ -561,4 +614,78 @@ public class XmlReport implements IUCDetectorReport {
   public void setExtension(ReportExtension reportExtension) {
     //
   }
+
+  /**
+   * Elements like markers or problems, written to a temporary file as they arrive
+   */
+  private static final class XmlFragment {
+    private final String name;
+    private final File file;
+    private final Writer writer;
+    private final XMLStreamWriter out;
+
+    /**
+     * @param name of the element containing the fragment, like "markers"
+     */
+    XmlFragment(String name) throws IOException, XMLStreamException {
+      this.name = name;
+      this.file = File.createTempFile("ucdetector_" + name, ".xml");
+      file.deleteOnExit();
+      this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UCDetectorPlugin.UTF_8));
+      this.out = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+    }
+
+    /** Write the element. It is not needed any more after writing */
+    void write(Element element) {
+      try {
+        writeElement(out, element, 2);
+      }
+      catch (XMLStreamException e) {
+        Log.error("Can't write " + name, e);
+      }
+    }
+
+    void flush() {
+      try {
+        out.flush();
+        writer.flush();
+      }
+      catch (Exception e) {
+        Log.error("Can't flush " + name, e);
+      }
+    }
+
+    /** Copy the elements of the temporary file, surrounded by the element <code>name</code> */
+    void copyTo(XMLStreamWriter xmlOut, Writer xmlWriter) throws IOException, XMLStreamException {
+      writeIndent(xmlOut, 1);
+      xmlOut.writeStartElement(name);
+      xmlOut.writeCharacters(""); // close start tag, before copying
+      xmlOut.flush();
+      Reader reader = null;
+      try {
+        reader = new InputStreamReader(new FileInputStream(file), UCDetectorPlugin.UTF_8);
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+          xmlWriter.write(buffer, 0, read);
+        }
+      }
+      finally {
+        UCDetectorPlugin.closeSave(reader);
+      }
+      writeIndent(xmlOut, 1);
+      xmlOut.writeEndElement();
+    }
+
+    void delete() {
+      try {
+        out.close();
+      }
+      catch (XMLStreamException e) {
+        Log.warn("Can't close " + name + ": " + e);
+      }
+      UCDetectorPlugin.closeSave(writer);
+      file.delete();
+    }
+  }
 }
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2026 agent
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ucdetector.search;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.search.FieldReferenceMatch;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+/**
+ * Receives all matches of a single REFERENCES search for a field, and sorts them into read and write
+ * accesses. So one search answers three questions, which needed three searches before:
+ * <ul>
+ * <li>references of the field (sent to the delegate requestor)</li>
+ * <li>can the field be final (write accesses)</li>
+ * <li>is the field ever read (read accesses)</li>
+ * </ul>
+ * The search is canceled, when all questions are answered.
+ * <p>
+ * @author agent
+ * @since 2026-10-17
+ */
+final class FieldAccessRequestor extends SearchRequestor {
+  /** java files containing matches. Only used, when the reference cache is switched on */
+  Set<String> referencingUnits;
+  private final FinalHandler.CanMakeFinalRequestor writeRequestor;
+  /** <code>null</code>, when the references are already known (batch search) */
+  private final SearchRequestor referenceRequestor;
+  private boolean hasReadAccess = false;
+  private boolean referencesFinished;
+
+  /**
+   * @param field field to search
+   * @param referenceRequestor receives all matches, or <code>null</code>
+   * @param useReferenceCache <code>true</code>, to remember the java files containing matches
+   */
+  FieldAccessRequestor(IField field, SearchRequestor referenceRequestor, boolean useReferenceCache) {
+    this.writeRequestor = new FinalHandler.CanMakeFinalRequestor(field);
+    this.referenceRequestor = referenceRequestor;
+    this.referencesFinished = referenceRequestor == null;
+    if (useReferenceCache) {
+      referencingUnits = new HashSet<String>();
+    }
+  }
+
+  @Override
+  public void acceptSearchMatch(SearchMatch match) throws CoreException {
+    if (referencingUnits != null) {
+      ReferenceCache.addReferencingUnit(referencingUnits, match);
+    }
+    // Same as READ_ACCESSES, WRITE_ACCESSES search
+    boolean isRead = true;
+    boolean isWrite = false;
+    if (match instanceof FieldReferenceMatch) {
+      FieldReferenceMatch fieldMatch = (FieldReferenceMatch) match;
+      isRead = fieldMatch.isReadAccess();
+      isWrite = fieldMatch.isWriteAccess();
+    }
+    if (isRead && match.getElement() instanceof IJavaElement) {
+      hasReadAccess = true;
+    }
+    if (isWrite && !writeRequestor.fieldHasWriteAccessFromMethod) {
+      try {
+        writeRequestor.acceptSearchMatch(match);
+      }
+      catch (OperationCanceledException e) {
+        // ignore: write access found, but continue to search references and read accesses
+      }
+    }
+    if (!referencesFinished) {
+      try {
+        referenceRequestor.acceptSearchMatch(match);
+      }
+      catch (OperationCanceledException e) {
+        referencesFinished = true;
+      }
+    }
+    if (referencesFinished && hasReadAccess && writeRequestor.fieldHasWriteAccessFromMethod) {
+      throw new OperationCanceledException("Cancel Search: All field accesses found");//$NON-NLS-1$
+    }
+  }
+
+  /**
+   * @return <code>true</code>, when the field can use the keyword final
+   */
+  boolean canMakeFinal() {
+    return !writeRequestor.fieldHasWriteAccessFromMethod;
+  }
+
+  /**
+   * @return <code>true</code>, when the field has read access
+   */
+  boolean hasReadAccess() {
+    return hasReadAccess;
+  }
+}
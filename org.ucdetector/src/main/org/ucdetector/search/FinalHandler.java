@@ -21,7 +21,7 @@ import org.eclipse.jdt.core.search.SearchMatch;
 import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.SearchRequestor;
 import org.ucdetector.Log;
-import org.ucdetector.preferences.Prefs;
+import org.ucdetector.preferences.DetectionConfig;
 import org.ucdetector.util.JavaElementUtil;
 import org.ucdetector.util.MarkerFactory;
 
@@ -34,11 +34,25 @@ import org.ucdetector.util.MarkerFactory;
  */
 class FinalHandler {
   private final MarkerFactory markerFactory;
+  private final DetectionConfig config;
+  /** <code>null</code>, when the reference index is not used */
+  private ReferenceIndex referenceIndex;
+  /** <code>null</code>, when the reference cache is not used */
+  private ReferenceCache referenceCache;
 
-  FinalHandler(MarkerFactory markerFactory) {
+  FinalHandler(DetectionConfig config, MarkerFactory markerFactory) {
+    this.config = config;
     this.markerFactory = markerFactory;
   }
 
+  void setReferenceIndex(ReferenceIndex referenceIndex) {
+    this.referenceIndex = referenceIndex;
+  }
+
+  void setReferenceCache(ReferenceCache referenceCache) {
+    this.referenceCache = referenceCache;
+  }
+
   /**
    * Create a marker: "Use final for method myMethod()"
    * @return <code>true</code>, if a marker was created
@@ -46,7 +60,7 @@ class FinalHandler {
   boolean createFinalMarker(IMethod method, int line) throws CoreException {
     int flags = method.getFlags();
     if (line == LineManger.LINE_NOT_FOUND //
-        || !Prefs.isCheckUseFinalMethod()//
+        || !config.isCheckUseFinalMethod()//
         || Flags.isPrivate(flags) //
         || Flags.isStatic(flags) //
         || Flags.isAbstract(flags) //
@@ -59,7 +73,9 @@ class FinalHandler {
       return false;
     }
     IType type = JavaElementUtil.getTypeFor(method, false);
-    if (!JavaElementUtil.hasSubClasses(type)) {
+    boolean hasSubClasses = referenceIndex == null ? JavaElementUtil.hasSubClasses(type) //
+        : referenceIndex.hasSubClasses(type);
+    if (!hasSubClasses) {
       return false;
     }
     return markerFactory.createFinalMarker(method, line);
@@ -67,12 +83,13 @@ class FinalHandler {
 
   /**
    * Create a marker: "Use final for method myMethod()"
+   * @param fieldAccess result of a search for all field accesses, or <code>null</code> to search write accesses
    * @return <code>true</code>, if a marker was created
    */
-  boolean createFinalMarker(IField field, int line) throws CoreException {
+  boolean createFinalMarker(IField field, int line, FieldAccessRequestor fieldAccess) throws CoreException {
     int flags = field.getFlags();
     if (line == LineManger.LINE_NOT_FOUND //
-        || !Prefs.isCheckUseFinalField() //
+        || !config.isCheckUseFinalField() //
         || Flags.isFinal(flags)//
         || Flags.isVolatile(flags)// A field can be either final or volatile, not both
         || field.isEnumConstant()// No modifier allowed for enum constants!
@@ -80,7 +97,8 @@ class FinalHandler {
     ) {
       return false;
     }
-    if (!canMakeFinal(field)) {
+    boolean canMakeFinal = fieldAccess == null ? canMakeFinal(field) : fieldAccess.canMakeFinal();
+    if (!canMakeFinal) {
       return false;
     }
     return markerFactory.createFinalMarker(field, line);
@@ -92,10 +110,27 @@ class FinalHandler {
   /**
    * @return <code>true</code>, when a field can use the keyword final
    */
-  private static boolean canMakeFinal(IField field) throws CoreException {
-    SearchPattern pattern = SearchPattern.createPattern(field, IJavaSearchConstants.WRITE_ACCESSES);
+  private boolean canMakeFinal(IField field) throws CoreException {
     CanMakeFinalRequestor requestor = new CanMakeFinalRequestor(field);
-    JavaElementUtil.runSearch(pattern, requestor);
+    if (referenceIndex != null) {
+      referenceIndex.search(field, IJavaSearchConstants.WRITE_ACCESSES, requestor);
+      return !requestor.fieldHasWriteAccessFromMethod;
+    }
+    SearchPattern pattern = SearchPattern.createPattern(field, IJavaSearchConstants.WRITE_ACCESSES);
+    if (referenceCache == null) {
+      JavaElementUtil.runSearch(field, pattern, requestor);
+      return !requestor.fieldHasWriteAccessFromMethod;
+    }
+    Boolean cachedCanMakeFinal = referenceCache.getCanMakeFinal(field);
+    if (cachedCanMakeFinal != null) {
+      return cachedCanMakeFinal.booleanValue();
+    }
+    ReferenceCache.RecordingRequestor recordingRequestor = new ReferenceCache.RecordingRequestor(requestor);
+    boolean isSearchException = JavaElementUtil.runSearch(field, pattern, recordingRequestor);
+    if (!isSearchException) {
+      referenceCache.putCanMakeFinal(field, !requestor.fieldHasWriteAccessFromMethod,
+          recordingRequestor.referencingUnits);
+    }
     return !requestor.fieldHasWriteAccessFromMethod;
   }
 
@@ -108,7 +143,7 @@ class FinalHandler {
    * <li>Ignore write access by instance initializer: <code>{field = 1}</code></li>
    * </ul>
    */
-  private static final class CanMakeFinalRequestor extends SearchRequestor {
+  static final class CanMakeFinalRequestor extends SearchRequestor {
     boolean fieldHasWriteAccessFromMethod = false;
     private final IField field;
 
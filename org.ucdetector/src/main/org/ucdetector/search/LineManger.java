@@ -7,33 +7,50 @@
  */
 package org.ucdetector.search;
 
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IOpenable;
 import org.eclipse.jdt.core.ISourceRange;
 import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.compiler.IScanner;
 import org.eclipse.jdt.core.compiler.ITerminalSymbols;
 import org.eclipse.jdt.core.compiler.InvalidInputException;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
 import org.eclipse.jdt.core.dom.Annotation;
 import org.eclipse.jdt.core.dom.ArrayInitializer;
 import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
 import org.eclipse.jdt.core.dom.Javadoc;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SingleMemberAnnotation;
@@ -42,14 +59,19 @@ import org.eclipse.jdt.core.dom.TagElement;
 import org.eclipse.jdt.core.dom.TextElement;
 import org.ucdetector.Log;
 import org.ucdetector.UCDetectorPlugin;
-import org.ucdetector.preferences.Prefs;
+import org.ucdetector.preferences.DetectionConfig;
 import org.ucdetector.util.ASTMemberVisitor;
 import org.ucdetector.util.JavaElementUtil;
+import org.ucdetector.util.StopWatch;
 import org.ucdetector.util.UsedBy;
 
 /**
  * Get the source code line of classes, methods, fields
  * <p>
+ * One instance is shared by all consumers running at the same time (detection, cycle search) with the same
+ * {@link DetectionConfig#getLineManagerKey()}, so each java file is parsed only once.
+ * Use {@link #acquire(DetectionConfig)} and {@link #release()}
+ * <p>
  * @author Joerg Spieler
  * @since 2008-02-29
  */
@@ -68,30 +90,71 @@ public class LineManger {
    * the source code line will be ignored by UCDetector
    */
   private static final String UCD_ANNOTATION_VALUE = "ucd"; //$NON-NLS-1$
+  /** Number of java files parsed together by {@link #preParse(Collection, int, UCDProgressMonitor)} */
+  private static final int PRE_PARSE_BATCH_SIZE = 200;
+  /** line manager key -> instance used by the running consumers. Guarded by <code>LineManger.class</code> */
+  private static final Map<String, LineManger> SHARED = new HashMap<String, LineManger>();
+  /** key of this instance in {@link #SHARED} */
+  private final String sharedKey;
+  /** number of consumers using this instance. Guarded by <code>LineManger.class</code> */
+  private int references = 0;
   /**
-   * parsed java files
-   */
-  private final Map<ICompilationUnit, ScannerTimestamp> scannerMap = new HashMap<ICompilationUnit, ScannerTimestamp>();
-  /**
-   * lines containing "NO_UCD
+   * parsed java files, last used files last. When {@link #maxCachedBytes} is reached, the least recently used
+   * files are removed. The garbage collector may remove files, too, when memory is low.
+   * Removed files are parsed again, when they are needed
    */
-  private final Map<IScanner, Set<Integer>> ignoreLineMap = new HashMap<IScanner, Set<Integer>>();
+  private final Map<ICompilationUnit, ParsedUnitReference> parsedUnits //
+  = new LinkedHashMap<ICompilationUnit, ParsedUnitReference>(16, 0.75f, true);
+  /** estimated memory of all files in {@link #parsedUnits} */
+  private long cachedBytes = 0;
+  private final long maxCachedBytes;
+  private int hits = 0;
+  private int misses = 0;
+  private int evicted = 0;
+  private int collected = 0;
+  /** java files parsed a second time, resolving bindings */
+  private final AtomicInteger resolvedUnits = new AtomicInteger();
+
+  /** Contains author from javadoc */
+  private final Map<IType, String> authorMap = new HashMap<IType, String>();
+  private final DetectionConfig config;
+
+  private LineManger(DetectionConfig config, String sharedKey) {
+    this.config = config;
+    this.sharedKey = sharedKey;
+    int lineCacheSize = config.getLineCacheSize();
+    maxCachedBytes = lineCacheSize < 1 ? Long.MAX_VALUE : lineCacheSize * 1024L * 1024L;
+  }
 
   /**
-   * position in file of each end of line
+   * Call {@link #release()}, when the line manager is not needed any more
+   * @param config preferences of the run
+   * @return line manager shared by all running consumers with the same preferences for parsing java files
    */
-  private final Map<ICompilationUnit, int[]> lineEndsMap = new HashMap<ICompilationUnit, int[]>();
+  public static LineManger acquire(DetectionConfig config) {
+    String key = config.getLineManagerKey();
+    synchronized (LineManger.class) {
+      LineManger shared = SHARED.get(key);
+      if (shared == null) {
+        shared = new LineManger(config, key);
+        SHARED.put(key, shared);
+      }
+      shared.references++;
+      return shared;
+    }
+  }
 
   /**
-   * parsed java files
+   * When the last consumer releases the line manager, the next consumer gets a new one,
+   * and the parsed java files can be garbage collected
    */
-  private final Map<ICompilationUnit, char[]> contentsMap = new HashMap<ICompilationUnit, char[]>();
-
-  /** Contains author from javadoc */
-  private final static Map<IType, String> authorMap = new HashMap<IType, String>();
-
-  public LineManger() {
-    authorMap.clear();
+  public void release() {
+    synchronized (LineManger.class) {
+      references--;
+      if (references <= 0 && SHARED.get(sharedKey) == this) {
+        SHARED.remove(sharedKey);
+      }
+    }
   }
 
   /**
@@ -110,9 +173,9 @@ public class LineManger {
     try {
       ISourceRange sourceRange = element.getSourceRange();
       int offsetEnd = sourceRange.getOffset() + sourceRange.getLength();
-      IScanner scanner = createScanner(element);
-      if (scanner != null) {
-        return scanner.getLineNumber(offsetEnd);
+      ParsedUnit parsed = getParsedUnit(element);
+      if (parsed != null) {
+        return parsed.getLineNumber(offsetEnd);
       }
     }
     catch (CoreException e) {
@@ -125,9 +188,9 @@ public class LineManger {
     try {
       ISourceRange javaDocRange = element.getJavadocRange();
       int offset = javaDocRange != null ? javaDocRange.getOffset() : element.getSourceRange().getOffset();
-      IScanner scanner = createScanner(element);
-      if (scanner != null) {
-        return scanner.getLineNumber(offset);
+      ParsedUnit parsed = getParsedUnit(element);
+      if (parsed != null) {
+        return parsed.getLineNumber(offset);
       }
     }
     catch (CoreException e) {
@@ -136,8 +199,10 @@ public class LineManger {
     return LINE_NOT_FOUND;
   }
 
-  public static String getAuthor(IJavaElement javaElement) {
-    return authorMap.get(JavaElementUtil.getTypeFor(javaElement, true));
+  public String getAuthor(IJavaElement javaElement) {
+    synchronized (authorMap) {
+      return authorMap.get(JavaElementUtil.getTypeFor(javaElement, true));
+    }
   }
 
   /**
@@ -147,13 +212,12 @@ public class LineManger {
    * @throws CoreException when there are problem in scanning java files
    */
   public int getLine(IMember element, int offset) throws CoreException {
-    IScanner scanner = createScanner(element);
-    if (scanner == null) {
+    ParsedUnit parsed = getParsedUnit(element);
+    if (parsed == null) {
       return LINE_NOT_FOUND;
     }
-    int lineNbr = scanner.getLineNumber(offset);
-    Set<Integer> ignoreLines = ignoreLineMap.get(scanner);
-    if (ignoreLines.contains(Integer.valueOf(lineNbr))) {
+    int lineNbr = parsed.getLineNumber(offset);
+    if (parsed.ignoreLines.get(lineNbr)) {
       return LINE_NOT_FOUND;
     }
     return lineNbr;
@@ -162,26 +226,67 @@ public class LineManger {
   /**
    * Get the lines for which the @SuppressWarnings annotations are<p>
    * See feature request: Want annotations, not comments, to indicate non-dead code - ID: 2658675
+   * <p>
+   * Resolving bindings is slow, so the java file is parsed without bindings first. Only when the annotation
+   * filter may match the full name of an annotation, which is not found in the imports,
+   * the java file is parsed again resolving bindings.
    */
-  private static FindIgnoreLinesVisitor findUcdSuppressWarningLines(IScanner scanner, ICompilationUnit compilationUnit) {
+  private FindIgnoreLinesVisitor findUcdSuppressWarningLines(IScanner scanner, ICompilationUnit compilationUnit) {
+    FindIgnoreLinesVisitor visitor = findUcdSuppressWarningLines(scanner, compilationUnit, false);
+    if (visitor.isAmbiguous) {
+      resolvedUnits.incrementAndGet();
+      visitor = findUcdSuppressWarningLines(scanner, compilationUnit, true);
+    }
+    return visitor;
+  }
+
+  private FindIgnoreLinesVisitor findUcdSuppressWarningLines(IScanner scanner, ICompilationUnit compilationUnit,
+      boolean resolveBindings) {
     ASTParser parser = UCDetectorPlugin.newASTParser();
     parser.setSource(compilationUnit); // compilationUnit needed for resolve bindings!
     parser.setKind(ASTParser.K_COMPILATION_UNIT);
-    parser.setResolveBindings(true);
+    parser.setResolveBindings(resolveBindings);
     ASTNode createAST = parser.createAST(null);
-    FindIgnoreLinesVisitor visitor = new FindIgnoreLinesVisitor(scanner);
-    createAST.accept(visitor);
+    return visit(scanner, createAST, resolveBindings);
+  }
+
+  private FindIgnoreLinesVisitor visit(IScanner scanner, ASTNode ast, boolean resolveBindings) {
+    FindIgnoreLinesVisitor visitor = new FindIgnoreLinesVisitor(scanner, config, resolveBindings);
+    ast.accept(visitor);
     // System.out.println("ignoreLines=" + visitor.ignoreLines);
     return visitor;
   }
 
   private static class FindIgnoreLinesVisitor extends ASTMemberVisitor {
-    final Set<Integer> ignoreLines = new LinkedHashSet<Integer>();
+    /** Annotations of java.lang, which are used without import */
+    private static final Collection<String> JAVA_LANG_ANNOTATIONS = Arrays.asList(//
+        "Override", "Deprecated", "SuppressWarnings", "SafeVarargs", "FunctionalInterface"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+    final BitSet ignoreLines = new BitSet();
+    /**
+     * <code>true</code>, when the full name of an annotation is needed for the annotation filter,
+     * but it can't be found without bindings
+     */
+    boolean isAmbiguous = false;
     private final IScanner scanner;
+    private final DetectionConfig config;
+    private final boolean resolveBindings;
+    /** simple name -> full name of single type imports */
+    private final Map<String, String> imports = new HashMap<String, String>();
     private String firstAuthor;
 
-    protected FindIgnoreLinesVisitor(IScanner scanner) {
+    protected FindIgnoreLinesVisitor(IScanner scanner, DetectionConfig config, boolean resolveBindings) {
       this.scanner = scanner;
+      this.config = config;
+      this.resolveBindings = resolveBindings;
+    }
+
+    @Override
+    public boolean visit(ImportDeclaration declaration) {
+      if (!declaration.isStatic() && !declaration.isOnDemand()) {
+        String fullName = declaration.getName().getFullyQualifiedName();
+        imports.put(fullName.substring(fullName.lastIndexOf('.') + 1), fullName);
+      }
+      return false;
     }
 
     /**
@@ -198,20 +303,20 @@ public class LineManger {
         if (modifier instanceof Annotation) {
           Annotation annotation = (Annotation) modifier;
           if (isIgnoreAnnotation(annotation)) {
-            ignoreLines.add(Integer.valueOf(scanner.getLineNumber(name.getStartPosition())));
+            ignoreLines.set(scanner.getLineNumber(name.getStartPosition()));
           }
         }
       }
       // [ 2923567 ] Do not report markers for deprecated class members
       // All children for a class are ignored automatically. See SearchManager.noRefTypes
-      if (Prefs.isFilterDeprecated()) {
+      if (config.isFilterDeprecated()) {
         Javadoc javadoc = declaration.getJavadoc();
         if (javadoc != null && javadoc.tags() != null) {
           @SuppressWarnings("unchecked")
           List<TagElement> tags = javadoc.tags();
           for (TagElement tag : tags) {
             if (TagElement.TAG_DEPRECATED.equals(tag.getTagName())) {
-              ignoreLines.add(Integer.valueOf(scanner.getLineNumber(name.getStartPosition())));
+              ignoreLines.set(scanner.getLineNumber(name.getStartPosition()));
             }
           }
         }
@@ -236,33 +341,69 @@ public class LineManger {
       return true;
     }
 
-    private static boolean isIgnoreAnnotation(Annotation annotation) {
+    private boolean isIgnoreAnnotation(Annotation annotation) {
       // See example in: SuppressWarningsProposal
       // The name we see in code. eg: Test, but maybe also be org.junit.Test
       String visibleName = annotation.getTypeName().getFullyQualifiedName();
-      if (Prefs.isFilter_NO_UCD() && isSuppressWarningsUCDetector(annotation, visibleName)) {
+      if (config.isFilter_NO_UCD() && isSuppressWarningsUCDetector(annotation, visibleName)) {
         return true;
       }
       if (isUsedByAnnotation(visibleName)) {
         return true;
       }
-      if (Prefs.isFilterDeprecated() && isDeprecatedAnnotation(visibleName)) {
+      if (config.isFilterDeprecated() && isDeprecatedAnnotation(visibleName)) {
         return true;
       }
-      if (Prefs.isFilterAnnotation(visibleName)) {
+      if (config.isFilterAnnotation(visibleName)) {
         return true;
       }
+      if (!config.isFilterAnnotation()) {
+        return false;
+      }
       // Match org.ucdetector.example.FilterMeAnnotation AND FilterMeAnnotation
       // using bindings, we get simple name AND full name
-      ITypeBinding typeBinding = annotation.resolveTypeBinding();
-      if (typeBinding != null) {
-        String name = typeBinding.getName();
-        String fullName = typeBinding.getQualifiedName();
-        if (Prefs.isFilterAnnotation(fullName) || Prefs.isFilterAnnotation(name)) {
-          return true;
+      if (resolveBindings) {
+        ITypeBinding typeBinding = annotation.resolveTypeBinding();
+        if (typeBinding != null) {
+          String name = typeBinding.getName();
+          String fullName = typeBinding.getQualifiedName();
+          if (config.isFilterAnnotation(fullName) || config.isFilterAnnotation(name)) {
+            return true;
+          }
         }
+        return false;
       }
-      return false;
+      // without bindings, we get the full name from the imports
+      String name = visibleName.substring(visibleName.lastIndexOf('.') + 1);
+      if (config.isFilterAnnotation(name)) {
+        return true;
+      }
+      String fullName = getFullName(visibleName);
+      if (fullName == null) {
+        isAmbiguous = true;
+        return false;
+      }
+      return config.isFilterAnnotation(fullName);
+    }
+
+    /**
+     * @return full name of an annotation, or <code>null</code>, when it can't be found without bindings.
+     * Example: Annotations of the same package, of on demand imports, or nested annotations
+     */
+    private String getFullName(String visibleName) {
+      int dot = visibleName.indexOf('.');
+      String first = dot < 0 ? visibleName : visibleName.substring(0, dot);
+      String imported = imports.get(first);
+      if (imported != null) {
+        return dot < 0 ? imported : imported + visibleName.substring(dot);
+      }
+      if (dot > 0 && Character.isLowerCase(first.charAt(0))) {
+        return visibleName; // starts with package name: org.example.FilterMeAnnotation
+      }
+      if (dot < 0 && JAVA_LANG_ANNOTATIONS.contains(visibleName)) {
+        return "java.lang." + visibleName; //$NON-NLS-1$
+      }
+      return null;
     }
 
     private static boolean isSuppressWarningsUCDetector(Annotation annotation, String name) {
@@ -306,9 +447,11 @@ public class LineManger {
   }
 
   /**
-   * Parse the java code
+   * Get the parsed java code from the cache, or parse it.<p>
+   * Called by parallel search threads: The cache is accessed synchronized, but
+   * parsing is done outside the lock
    */
-  private IScanner createScanner(IJavaElement javaElement) throws CoreException {
+  private ParsedUnit getParsedUnit(IJavaElement javaElement) throws CoreException {
     IOpenable openable = javaElement.getOpenable();
     if (!(openable instanceof ICompilationUnit)) {
       Log.warn("openable NOT instanceof ICompilationUnit '%s' %s", //$NON-NLS-1$
@@ -318,27 +461,72 @@ public class LineManger {
     ICompilationUnit compilationUnit = (ICompilationUnit) openable;
     // Update scanner, if file changed!
     long timeStamp = javaElement.getResource().getLocalTimeStamp();
-    ScannerTimestamp scannerTimestamp = scannerMap.get(compilationUnit);
-    if (scannerTimestamp != null) {
-      if (timeStamp > scannerTimestamp.timeStamp) {
-        scannerMap.remove(compilationUnit);
+    synchronized (this) {
+      ParsedUnitReference reference = parsedUnits.get(compilationUnit);
+      ParsedUnit parsed = reference == null ? null : reference.get();
+      if (parsed != null && timeStamp <= parsed.timeStamp) {
+        hits++;
+        return parsed;
       }
-      else {
-        return scannerMap.get(compilationUnit).scanner;
+      misses++;
+      if (reference != null) {
+        parsedUnits.remove(compilationUnit);
+        cachedBytes -= reference.bytes;
+        if (parsed == null) {
+          collected++;
+        }
       }
     }
-    IScanner scanner = UCDetectorPlugin.createScanner(javaElement);
+    ParsedUnit parsed = parse(compilationUnit, timeStamp);
+    synchronized (this) {
+      putParsedUnit(compilationUnit, parsed);
+    }
+    return parsed;
+  }
+
+  /**
+   * Add a parsed java file to the cache, and remove least recently used files, when the cache is too big
+   */
+  private void putParsedUnit(ICompilationUnit compilationUnit, ParsedUnit parsed) {
+    ParsedUnitReference reference = new ParsedUnitReference(parsed);
+    ParsedUnitReference old = parsedUnits.put(compilationUnit, reference);
+    if (old != null) {
+      cachedBytes -= old.bytes; // parsed by another thread at the same time
+    }
+    cachedBytes += reference.bytes;
+    Iterator<ParsedUnitReference> eldest = parsedUnits.values().iterator();
+    // Keep at least the file just parsed
+    while (cachedBytes > maxCachedBytes && parsedUnits.size() > 1) {
+      cachedBytes -= eldest.next().bytes;
+      eldest.remove();
+      evicted++;
+    }
+  }
+
+  /**
+   * Parse the java code: Find the lines of the code, and the lines to ignore.
+   * Only the line ends and the lines to ignore are kept, the scanner and the contents are released
+   */
+  private ParsedUnit parse(ICompilationUnit compilationUnit, long timeStamp) throws CoreException {
+    BitSet ignoreLines = new BitSet();
+    IScanner scanner = scan(compilationUnit, ignoreLines);
+    FindIgnoreLinesVisitor visitor = findUcdSuppressWarningLines(scanner, compilationUnit);
+    return createParsedUnit(compilationUnit, timeStamp, scanner, ignoreLines, visitor);
+  }
+
+  /**
+   * Run the tokenizer over the java code, to find the line ends and the "NO_UCD" comments
+   */
+  private IScanner scan(ICompilationUnit compilationUnit, BitSet ignoreLines) throws CoreException {
+    IScanner scanner = UCDetectorPlugin.createScanner(compilationUnit);
     // old: char[] contents = org.eclipse.jdt.internal.core.CompilationUnit.getContents();
     char[] contents = compilationUnit.getBuffer().getCharacters();
-    contentsMap.put(compilationUnit, contents);
     scanner.setSource(contents);
-    Set<Integer> ignoreLines = new HashSet<Integer>();
-    ignoreLineMap.put(scanner, ignoreLines);
     int nextToken;
     try {
       while ((nextToken = scanner.getNextToken()) != ITerminalSymbols.TokenNameEOF) {
         // We must run getNextToken() until end, to call scanner.getLineEnds() later 
-        if (Prefs.isFilter_NO_UCD()) {
+        if (config.isFilter_NO_UCD()) {
           addIgnoreLineForToken(ignoreLines, scanner, NO_UCD_COMMENT, nextToken, ITerminalSymbols.TokenNameCOMMENT_LINE);
         }
       }
@@ -347,16 +535,173 @@ public class LineManger {
       IStatus status = new Status(IStatus.ERROR, UCDetectorPlugin.ID, IStatus.ERROR, e.getMessage(), e);
       throw new CoreException(status);
     }
-    scannerMap.put(compilationUnit, new ScannerTimestamp(scanner, timeStamp));
-    lineEndsMap.put(compilationUnit, scanner.getLineEnds());
-    FindIgnoreLinesVisitor visitor = findUcdSuppressWarningLines(scanner, compilationUnit);
-    ignoreLines.addAll(visitor.ignoreLines);
+    return scanner;
+  }
+
+  private ParsedUnit createParsedUnit(ICompilationUnit compilationUnit, long timeStamp, IScanner scanner,
+      BitSet ignoreLines, FindIgnoreLinesVisitor visitor) {
+    ignoreLines.or(visitor.ignoreLines);
     if (visitor.firstAuthor != null) {
-      IType type = JavaElementUtil.getTypeFor(javaElement, true);
+      IType type = JavaElementUtil.getTypeFor(compilationUnit, true);
       //      System.out.println(type.getElementName() + "->" + visitor.firstAuthor);
-      authorMap.put(type, visitor.firstAuthor.trim());
+      synchronized (authorMap) {
+        authorMap.put(type, visitor.firstAuthor.trim());
+      }
+    }
+    return new ParsedUnit(timeStamp, scanner.getLineEnds(), ignoreLines);
+  }
+
+  // -------------------------------------------------------------------------
+  // PRE PARSE
+  // -------------------------------------------------------------------------
+  /**
+   * Parse java files before searching, instead of parsing them one by one, when their lines are needed.<p>
+   * The java files of a project are parsed together in batches, sharing the parser environment.
+   * Projects are parsed in parallel. Only line ends and lines to ignore are kept, the syntax trees are released
+   * @param compilationUnits java files containing the classes, methods, fields to detect
+   * @param threads maximum number of projects parsed in parallel
+   * @param monitor to check for cancel
+   */
+  public void preParse(Collection<ICompilationUnit> compilationUnits, int threads, UCDProgressMonitor monitor) {
+    StopWatch watch = new StopWatch();
+    Map<IJavaProject, List<ICompilationUnit>> projects = new LinkedHashMap<IJavaProject, List<ICompilationUnit>>();
+    for (ICompilationUnit compilationUnit : compilationUnits) {
+      List<ICompilationUnit> units = projects.get(compilationUnit.getJavaProject());
+      if (units == null) {
+        units = new ArrayList<ICompilationUnit>();
+        projects.put(compilationUnit.getJavaProject(), units);
+      }
+      units.add(compilationUnit);
+    }
+    int poolSize = Math.max(1, Math.min(threads, projects.size()));
+    ExecutorService executor = Executors.newFixedThreadPool(poolSize, new SearchManager.SearchThreadFactory());
+    try {
+      List<Future<?>> results = new ArrayList<Future<?>>();
+      for (Map.Entry<IJavaProject, List<ICompilationUnit>> project : projects.entrySet()) {
+        results.add(executor.submit(new PreParseTask(project.getKey(), project.getValue(), monitor)));
+      }
+      for (Future<?> result : results) {
+        waitForResult(result, monitor);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    Log.info("Pre parse: %s java files in %s projects. %s", Integer.valueOf(compilationUnits.size()), //$NON-NLS-1$
+        Integer.valueOf(projects.size()), watch.end("Pre parse java files")); //$NON-NLS-1$
+  }
+
+  /**
+   * Wait for the worker, but check every half second, if the user canceled the search
+   */
+  private static void waitForResult(Future<?> result, UCDProgressMonitor monitor) {
+    while (true) {
+      monitor.throwIfIsCanceled();
+      try {
+        result.get(500, TimeUnit.MILLISECONDS);
+        return;
+      }
+      catch (TimeoutException e) {
+        continue;
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OperationCanceledException("Pre parse interrupted"); //$NON-NLS-1$
+      }
+      catch (ExecutionException e) {
+        if (e.getCause() instanceof OperationCanceledException) {
+          throw (OperationCanceledException) e.getCause();
+        }
+        // Not parsed java files are parsed, when they are needed
+        Log.warn("Pre parse failed: %s", e.getCause()); //$NON-NLS-1$
+        return;
+      }
     }
-    return scanner;
+  }
+
+  /**
+   * Parse the java files of a project in batches. Java files needing bindings are parsed
+   * in a second batch resolving bindings
+   */
+  private final class PreParseTask implements Runnable {
+    private final IJavaProject project;
+    private final List<ICompilationUnit> compilationUnits;
+    private final UCDProgressMonitor monitor;
+
+    PreParseTask(IJavaProject project, List<ICompilationUnit> compilationUnits, UCDProgressMonitor monitor) {
+      this.project = project;
+      this.compilationUnits = compilationUnits;
+      this.monitor = monitor;
+    }
+
+    @Override
+    public void run() {
+      for (int start = 0; start < compilationUnits.size(); start += PRE_PARSE_BATCH_SIZE) {
+        List<ICompilationUnit> batch = compilationUnits.subList(start,
+            Math.min(start + PRE_PARSE_BATCH_SIZE, compilationUnits.size()));
+        PreParseRequestor requestor = parseBatch(batch, false);
+        if (!requestor.ambiguousUnits.isEmpty()) {
+          resolvedUnits.addAndGet(requestor.ambiguousUnits.size());
+          parseBatch(requestor.ambiguousUnits, true);
+        }
+      }
+    }
+
+    private PreParseRequestor parseBatch(List<ICompilationUnit> batch, boolean resolveBindings) {
+      ASTParser parser = UCDetectorPlugin.newASTParser();
+      parser.setProject(project);
+      parser.setKind(ASTParser.K_COMPILATION_UNIT);
+      parser.setResolveBindings(resolveBindings);
+      PreParseRequestor requestor = new PreParseRequestor(resolveBindings, monitor);
+      parser.createASTs(batch.toArray(new ICompilationUnit[batch.size()]), new String[0], requestor, null);
+      return requestor;
+    }
+  }
+
+  /**
+   * Receives the syntax trees of a batch, and keeps only the lines of each java file
+   */
+  private final class PreParseRequestor extends ASTRequestor {
+    /** java files, which must be parsed again resolving bindings */
+    final List<ICompilationUnit> ambiguousUnits = new ArrayList<ICompilationUnit>();
+    private final boolean resolveBindings;
+    private final UCDProgressMonitor monitor;
+
+    PreParseRequestor(boolean resolveBindings, UCDProgressMonitor monitor) {
+      this.resolveBindings = resolveBindings;
+      this.monitor = monitor;
+    }
+
+    @Override
+    public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+      monitor.throwIfIsCanceled();
+      try {
+        long timeStamp = source.getResource().getLocalTimeStamp();
+        BitSet ignoreLines = new BitSet();
+        IScanner scanner = scan(source, ignoreLines);
+        FindIgnoreLinesVisitor visitor = visit(scanner, ast, resolveBindings);
+        if (visitor.isAmbiguous) {
+          ambiguousUnits.add(source);
+          return;
+        }
+        ParsedUnit parsed = createParsedUnit(source, timeStamp, scanner, ignoreLines, visitor);
+        synchronized (LineManger.this) {
+          putParsedUnit(source, parsed);
+        }
+      }
+      catch (CoreException e) {
+        Log.warn("Can't pre parse %s: %s", source.getElementName(), e); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /**
+   * Log statistics of the cache of parsed java files
+   */
+  public synchronized void logStatistics() {
+    Log.info("Line cache: %s hits, %s misses, %s evicted, %s collected. %s files, %s KB. %s parsed with bindings", //$NON-NLS-1$
+        Integer.valueOf(hits), Integer.valueOf(misses), Integer.valueOf(evicted), Integer.valueOf(collected),
+        Integer.valueOf(parsedUnits.size()), Long.valueOf(cachedBytes / 1024), resolvedUnits);
   }
 
   /**
@@ -366,10 +711,24 @@ public class LineManger {
    */
   public String getPieceOfCode(IJavaElement element, int offset) {
     IType type = JavaElementUtil.getTypeFor(element, false);
-    ICompilationUnit unit = type.getCompilationUnit();
-    int[] lineEnds = lineEndsMap.get(unit);
-    char[] chars = contentsMap.get(unit);
-    if (lineEnds != null && chars != null) {
+    ParsedUnit parsed;
+    try {
+      parsed = getParsedUnit(type);
+    }
+    catch (CoreException e) {
+      Log.warn("Can't get piece of code: %s", e); //$NON-NLS-1$
+      return ""; //$NON-NLS-1$
+    }
+    if (parsed != null) {
+      int[] lineEnds = parsed.lineEnds;
+      char[] chars;
+      try {
+        chars = type.getCompilationUnit().getBuffer().getCharacters();
+      }
+      catch (JavaModelException e) {
+        Log.warn("Can't get piece of code: %s", e); //$NON-NLS-1$
+        return ""; //$NON-NLS-1$
+      }
       for (int i = 0; i < lineEnds.length - 1; i++) {
         int start = lineEnds[i];
         int end = lineEnds[i + 1];
@@ -409,7 +768,7 @@ public class LineManger {
   /**
    * Add line number for a tag like "NO_UCD"
    */
-  private static void addIgnoreLineForToken(Set<Integer> ignoreLines, IScanner scanner, String tag, int nextToken,
+  private static void addIgnoreLineForToken(BitSet ignoreLines, IScanner scanner, String tag, int nextToken,
       int tokenType) {
     if (nextToken == tokenType) {
       char[] currentTokenSource = scanner.getCurrentTokenSource();
@@ -417,7 +776,7 @@ public class LineManger {
       if (source.contains(tag)) {
         int start = scanner.getCurrentTokenStartPosition();
         int line = scanner.getLineNumber(start);
-        ignoreLines.add(Integer.valueOf(line));
+        ignoreLines.set(line);
       }
     }
     /*
@@ -432,16 +791,48 @@ public class LineManger {
   }
 
   /**
-   * This class holds a scanner and its timestamp.
-   * Update scanner, if file has changed!
+   * This class holds the line ends of a java file and its timestamp, and the lines to ignore.
+   * Update, if file has changed!
    */
-  private static final class ScannerTimestamp {
+  private static final class ParsedUnit {
     final long timeStamp;
-    final IScanner scanner;
+    /** position in file of each end of line, ascending */
+    final int[] lineEnds;
+    /** lines containing "NO_UCD", or annotated with ignore annotations */
+    final BitSet ignoreLines;
 
-    ScannerTimestamp(IScanner scanner, long timeStamp) {
-      this.scanner = scanner;
+    ParsedUnit(long timeStamp, int[] lineEnds, BitSet ignoreLines) {
       this.timeStamp = timeStamp;
+      this.lineEnds = lineEnds;
+      this.ignoreLines = ignoreLines;
+    }
+
+    /**
+     * Same as <code>IScanner.getLineNumber()</code>: The end of line belongs to its line
+     * @return line number starting with 1
+     */
+    int getLineNumber(int offset) {
+      int index = Arrays.binarySearch(lineEnds, offset);
+      return index >= 0 ? index + 1 : -index;
+    }
+
+    /**
+     * @return estimated memory used by this file
+     */
+    long getEstimatedBytes() {
+      return 4L * lineEnds.length + ignoreLines.size() / 8 + 64;
+    }
+  }
+
+  /**
+   * Keeps the estimated memory of a parsed java file, even when the garbage collector removed it
+   */
+  private static final class ParsedUnitReference extends SoftReference<ParsedUnit> {
+    final long bytes;
+
+    ParsedUnitReference(ParsedUnit parsed) {
+      super(parsed);
+      this.bytes = parsed.getEstimatedBytes();
     }
   }
 }
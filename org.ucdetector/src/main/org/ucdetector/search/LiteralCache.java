@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2026 agent
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ucdetector.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.JavaCore;
+import org.ucdetector.Log;
+import org.ucdetector.UCDetectorPlugin;
+import org.ucdetector.search.LiteralSearch.FileHits;
+import org.ucdetector.util.StopWatch;
+
+/**
+ * Keeps the class names found in text files by the {@link LiteralSearch} in a cache file for the next run.<p>
+ * A file is read again, when its modification stamp, size or charset changed. When class names are searched,
+ * which were not searched before, all files are read again. Class names of classes, which don't exist any more,
+ * are removed from the cache.
+ * <p>
+ * @author agent
+ * @since 2026-10-17
+ */
+final class LiteralCache {
+  private static final int VERSION = 2;
+  private static final String CACHE_FILE = "literalCache.dat"; //$NON-NLS-1$
+  private final File cacheFile;
+  /** class names searched, when the cache was written -> handle identifiers of their classes */
+  private final Map<String, Set<String>> searchStrings = new LinkedHashMap<String, Set<String>>();
+  /** file path -> state and matches of the file, read from the cache file */
+  private final Map<String, CachedFile> files = new HashMap<String, CachedFile>();
+  /** file path -> state and matches of the files of this run, which will be written to the cache file */
+  private final Map<String, CachedFile> filesOfRun = new LinkedHashMap<String, CachedFile>();
+
+  private LiteralCache(File cacheFile) {
+    this.cacheFile = cacheFile;
+  }
+
+  /**
+   * @param searchStrings class names, which will be searched
+   * @return cache containing the matches of former UCDetector runs
+   */
+  static LiteralCache read(Collection<String> searchStrings) {
+    File file = new File(UCDetectorPlugin.getDefault().getStateLocation().toFile(), CACHE_FILE);
+    LiteralCache cache = new LiteralCache(file);
+    cache.read();
+    cache.removeDeletedTypes();
+    if (!cache.searchStrings.keySet().containsAll(searchStrings)) {
+      cache.files.clear(); // Not all class names were searched in cached files
+    }
+    return cache;
+  }
+
+  /**
+   * Remove class names, when none of their classes exists, and their matches
+   */
+  private void removeDeletedTypes() {
+    for (Iterator<Set<String>> iterator = searchStrings.values().iterator(); iterator.hasNext();) {
+      if (!exists(iterator.next())) {
+        iterator.remove();
+      }
+    }
+    for (CachedFile cached : files.values()) {
+      cached.hits.keySet().retainAll(searchStrings.keySet());
+    }
+  }
+
+  private static boolean exists(Set<String> handleIdentifiers) {
+    for (String handleIdentifier : handleIdentifiers) {
+      IJavaElement type = JavaCore.create(handleIdentifier);
+      if (type != null && type.exists()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return class names searched, when the cache was written -> handle identifiers of their classes.
+   * They are searched again, to keep them cached
+   */
+  Map<String, Set<String>> getSearchStrings() {
+    return searchStrings;
+  }
+
+  /**
+   * @return matches of a file, or <code>null</code>, when the file is not cached, or when it changed
+   */
+  Map<String, FileHits> get(IFile file, FileState state) {
+    String path = file.getFullPath().toString();
+    CachedFile cached = files.get(path);
+    if (cached == null || !cached.state.equals(state)) {
+      return null;
+    }
+    filesOfRun.put(path, cached);
+    Map<String, FileHits> result = new LinkedHashMap<String, FileHits>();
+    for (Map.Entry<String, int[]> entry : cached.hits.entrySet()) {
+      FileHits hit = new FileHits(file);
+      hit.matches = entry.getValue()[0];
+      hit.classNameMatches = entry.getValue()[1];
+      result.put(entry.getKey(), hit);
+    }
+    return result;
+  }
+
+  /**
+   * Remember the matches of a file, which will be written to the cache file
+   */
+  void put(IFile file, FileState state, Map<String, FileHits> fileHits) {
+    CachedFile cached = new CachedFile(state);
+    for (Map.Entry<String, FileHits> entry : fileHits.entrySet()) {
+      FileHits hit = entry.getValue();
+      cached.hits.put(entry.getKey(), new int[] { hit.matches, hit.classNameMatches });
+    }
+    filesOfRun.put(file.getFullPath().toString(), cached);
+  }
+
+  // -------------------------------------------------------------------------
+  // FILE
+  // -------------------------------------------------------------------------
+  private void read() {
+    if (!cacheFile.exists()) {
+      return;
+    }
+    DataInputStream inStream = null;
+    try {
+      inStream = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+      if (inStream.readInt() != VERSION) {
+        return;
+      }
+      int searchStringCount = inStream.readInt();
+      for (int i = 0; i < searchStringCount; i++) {
+        String searchString = inStream.readUTF();
+        Set<String> types = new LinkedHashSet<String>();
+        int typeCount = inStream.readInt();
+        for (int j = 0; j < typeCount; j++) {
+          types.add(inStream.readUTF());
+        }
+        searchStrings.put(searchString, types);
+      }
+      int fileCount = inStream.readInt();
+      for (int i = 0; i < fileCount; i++) {
+        String path = inStream.readUTF();
+        CachedFile cached = new CachedFile(new FileState(inStream.readLong(), inStream.readLong(), inStream.readUTF()));
+        int hitCount = inStream.readInt();
+        for (int j = 0; j < hitCount; j++) {
+          cached.hits.put(inStream.readUTF(), new int[] { inStream.readInt(), inStream.readInt() });
+        }
+        files.put(path, cached);
+      }
+    }
+    catch (IOException e) {
+      Log.warn("Can't read literal cache %s: %s", cacheFile, e); //$NON-NLS-1$
+      searchStrings.clear();
+      files.clear();
+    }
+    finally {
+      UCDetectorPlugin.closeSave(inStream);
+    }
+  }
+
+  /**
+   * Write the cache file. Only files of this run are written
+   * @param searched all class names searched in this run -> handle identifiers of their classes
+   */
+  void save(Map<String, Set<String>> searched) {
+    StopWatch watch = new StopWatch();
+    DataOutputStream outStream = null;
+    try {
+      outStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)));
+      outStream.writeInt(VERSION);
+      outStream.writeInt(searched.size());
+      for (Map.Entry<String, Set<String>> entry : searched.entrySet()) {
+        outStream.writeUTF(entry.getKey());
+        outStream.writeInt(entry.getValue().size());
+        for (String handleIdentifier : entry.getValue()) {
+          outStream.writeUTF(handleIdentifier);
+        }
+      }
+      outStream.writeInt(filesOfRun.size());
+      for (Map.Entry<String, CachedFile> fileEntry : filesOfRun.entrySet()) {
+        CachedFile cached = fileEntry.getValue();
+        outStream.writeUTF(fileEntry.getKey());
+        outStream.writeLong(cached.state.stamp);
+        outStream.writeLong(cached.state.size);
+        outStream.writeUTF(cached.state.charset);
+        outStream.writeInt(cached.hits.size());
+        for (Map.Entry<String, int[]> hit : cached.hits.entrySet()) {
+          outStream.writeUTF(hit.getKey());
+          outStream.writeInt(hit.getValue()[0]);
+          outStream.writeInt(hit.getValue()[1]);
+        }
+      }
+      Log.info("Literal cache: %s files saved. %s", Integer.valueOf(filesOfRun.size()), //$NON-NLS-1$
+          watch.end("Save literal cache")); //$NON-NLS-1$
+    }
+    catch (IOException e) {
+      Log.warn("Can't write literal cache %s: %s", cacheFile, e); //$NON-NLS-1$
+    }
+    finally {
+      UCDetectorPlugin.closeSave(outStream);
+    }
+  }
+
+  /**
+   * Cached state and matches of a text file
+   */
+  private static final class CachedFile {
+    final FileState state;
+    /** class name -> matches, class name matches */
+    final Map<String, int[]> hits = new HashMap<String, int[]>();
+
+    CachedFile(FileState state) {
+      this.state = state;
+    }
+  }
+
+  /**
+   * When one of modification stamp, size or charset changes, the file must be read again
+   */
+  static final class FileState {
+    final long stamp;
+    final long size;
+    final String charset;
+
+    FileState(long stamp, long size, String charset) {
+      this.stamp = stamp;
+      this.size = size;
+      this.charset = charset;
+    }
+
+    static FileState create(IFile file) throws CoreException {
+      IPath location = file.getLocation();
+      long size = location == null ? -1 : location.toFile().length();
+      return new FileState(file.getModificationStamp(), size, file.getCharset());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof FileState)) {
+        return false;
+      }
+      FileState other = (FileState) obj;
+      return stamp == other.stamp && size == other.size && charset.equals(other.charset);
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (stamp ^ size) + charset.hashCode();
+    }
+  }
+}
@@ -0,0 +1,584 @@
+/**
+ * Copyright (c) 2026 agent
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ucdetector.search;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.LocationKind;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.search.ui.text.FileTextSearchScope;
+import org.ucdetector.Log;
+import org.ucdetector.UCDetectorPlugin;
+import org.ucdetector.preferences.DetectionConfig;
+import org.ucdetector.util.StopWatch;
+
+/**
+ * Search class names in text files (<code>*.xml, MANIFEST.MF</code>...) for all classes at once.<p>
+ * Before, a workspace text search was started for each class name. Now all files matching
+ * {@link DetectionConfig#getFilePatternLiteralSearch()} are read once, and all class names are found
+ * by a multi pattern matcher (Aho-Corasick automaton). The result is a table: class name -> files.
+ * <p>
+ * Matches are found like in the text search: A match is a class name match, if the character before is not a
+ * java identifier start, and the character after is not a java identifier part.
+ * <p>
+ * When all class names are ASCII, and the charset of a file is ASCII compatible (UTF-8, US-ASCII, ISO-8859-*,
+ * windows-125x), the file is not decoded: The class names are matched directly on the bytes of the file.
+ * Only when a byte before or after a match is not ASCII,
+ * the file is decoded to check the character.
+ * <p>
+ * Files are scanned in parallel (see {@link DetectionConfig#getSearchThreads()}). When the literal cache
+ * is switched on, the matches of each file are kept in the {@link LiteralCache}, and only changed files are scanned
+ * again. Like <code>TextSearchEngine</code>, the contents of editors, which are not saved, are searched instead of
+ * the contents of the file.
+ * <p>
+ * @author agent
+ * @since 2026-10-17
+ */
+final class LiteralSearch {
+  /** charset name -> <code>true</code>, when ASCII characters are encoded as single bytes with the same value */
+  private static final Map<String, Boolean> ASCII_COMPATIBLE = new ConcurrentHashMap<String, Boolean>();
+  /** Class names to search */
+  private final String[] searchStrings;
+  private final Matcher matcher;
+  /** search string -> files containing the search string */
+  private final Map<String, List<FileHits>> hits = new HashMap<String, List<FileHits>>();
+  private int scannedFiles = 0;
+  private int decodedFiles = 0;
+
+  private LiteralSearch(Collection<String> searchStrings) {
+    this.searchStrings = new LinkedHashSet<String>(searchStrings).toArray(new String[0]);
+    this.matcher = new Matcher(this.searchStrings);
+  }
+
+  /**
+   * @param searchStrings all class names, which should be searched -> handle identifiers of their classes
+   * @param config preferences of the detection
+   * @param monitor to show progress and to check for cancel
+   * @return files containing the class names
+   * @throws CoreException when the files to search can't be found
+   */
+  static LiteralSearch build(Map<String, Set<String>> searchStrings, DetectionConfig config,
+      UCDProgressMonitor monitor) throws CoreException {
+    StopWatch watch = new StopWatch();
+    LiteralCache cache = config.isLiteralCache() ? LiteralCache.read(searchStrings.keySet()) : null;
+    Map<String, Set<String>> allSearchStrings = new LinkedHashMap<String, Set<String>>(searchStrings);
+    if (cache != null) {
+      // Search class names of the cache, too. Otherwise the cache can't be used, when other classes are detected
+      for (Map.Entry<String, Set<String>> entry : cache.getSearchStrings().entrySet()) {
+        Set<String> types = allSearchStrings.get(entry.getKey());
+        if (types == null) {
+          allSearchStrings.put(entry.getKey(), entry.getValue());
+        }
+        else {
+          types.addAll(entry.getValue());
+        }
+      }
+    }
+    LiteralSearch literalSearch = new LiteralSearch(allSearchStrings.keySet());
+    IFile[] files = getFilesToSearch(config);
+    literalSearch.scan(files, cache, config.getSearchThreads(), monitor);
+    if (cache != null) {
+      cache.save(allSearchStrings);
+    }
+    Log.info("Literal search: %s class names, %s files (%s read, %s decoded). %s", //$NON-NLS-1$
+        Integer.valueOf(literalSearch.searchStrings.length), Integer.valueOf(files.length),
+        Integer.valueOf(literalSearch.scannedFiles), Integer.valueOf(literalSearch.decodedFiles),
+        watch.end("Search class names in text files")); //$NON-NLS-1$
+    return literalSearch;
+  }
+
+  /**
+   * Files, which are not cached, are scanned in parallel.
+   * The matches are added in the order of the files, so the result is the same as scanning in a single thread.
+   */
+  private void scan(IFile[] files, LiteralCache cache, int threads, UCDProgressMonitor monitor)
+      throws CoreException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new SearchManager.SearchThreadFactory());
+    try {
+      List<LiteralCache.FileState> states = new ArrayList<LiteralCache.FileState>();
+      List<Map<String, FileHits>> cachedHits = new ArrayList<Map<String, FileHits>>();
+      List<Future<ScanResult>> results = new ArrayList<Future<ScanResult>>();
+      for (IFile file : files) {
+        String dirtyContents = getDirtyContents(file);
+        // Contents of editors are not cached
+        LiteralCache.FileState state = dirtyContents != null ? null : LiteralCache.FileState.create(file);
+        Map<String, FileHits> cached = cache == null || state == null ? null : cache.get(file, state);
+        states.add(state);
+        cachedHits.add(cached);
+        results.add(cached == null ? executor.submit(new ScanTask(file, dirtyContents)) : null);
+      }
+      for (int i = 0; i < files.length; i++) {
+        if (cachedHits.get(i) != null) {
+          addHits(cachedHits.get(i));
+          continue;
+        }
+        if (scannedFiles % 100 == 0) {
+          monitor.subTask(String.format("Search class names in text files (%s/%s)", //$NON-NLS-1$
+              Integer.valueOf(i), Integer.valueOf(files.length)));
+        }
+        ScanResult result = waitForResult(results.get(i), monitor);
+        if (result == null) {
+          continue; // file can't be read
+        }
+        scannedFiles++;
+        if (result.isDecoded) {
+          decodedFiles++;
+        }
+        addHits(result.fileHits);
+        if (cache != null && states.get(i) != null) {
+          cache.put(files[i], states.get(i), result.fileHits);
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Wait for the worker, but check every half second, if the user canceled the search
+   */
+  private static ScanResult waitForResult(Future<ScanResult> result, UCDProgressMonitor monitor) {
+    while (true) {
+      monitor.throwIfIsCanceled();
+      try {
+        return result.get(500, TimeUnit.MILLISECONDS);
+      }
+      catch (TimeoutException e) {
+        continue;
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OperationCanceledException("Literal search interrupted"); //$NON-NLS-1$
+      }
+      catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+      }
+    }
+  }
+
+  private void addHits(Map<String, FileHits> fileHits) {
+    for (Map.Entry<String, FileHits> entry : fileHits.entrySet()) {
+      List<FileHits> list = hits.get(entry.getKey());
+      if (list == null) {
+        list = new ArrayList<FileHits>(2);
+        hits.put(entry.getKey(), list);
+      }
+      list.add(entry.getValue());
+    }
+  }
+
+  /**
+   * @return same files as searched by <code>TextSearchEngine</code>: derived resources are excluded
+   */
+  private static IFile[] getFilesToSearch(DetectionConfig config) throws CoreException {
+    FileTextSearchScope scope = FileTextSearchScope.newWorkspaceScope(config.getFilePatternLiteralSearch(), false);
+    MultiStatus status = new MultiStatus(UCDetectorPlugin.ID, IStatus.OK, "Files for literal search", null); //$NON-NLS-1$
+    IFile[] files = scope.evaluateFilesInScope(status);
+    if (!status.isOK()) {
+      throw new CoreException(status);
+    }
+    return files;
+  }
+
+  /**
+   * @return contents of an editor of the file, which is not saved, or <code>null</code>
+   */
+  private static String getDirtyContents(IFile file) {
+    ITextFileBuffer buffer = FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(),
+        LocationKind.IFILE);
+    return buffer != null && buffer.isDirty() ? buffer.getDocument().get() : null;
+  }
+
+  /**
+   * Find the class names in a file in a worker thread
+   */
+  private final class ScanTask implements Callable<ScanResult> {
+    private final IFile file;
+    /** contents of an editor, which is not saved. <code>null</code>: read the file */
+    private final String dirtyContents;
+
+    ScanTask(IFile file, String dirtyContents) {
+      this.file = file;
+      this.dirtyContents = dirtyContents;
+    }
+
+    /**
+     * @return <code>null</code>, when the file can't be read
+     */
+    @Override
+    public ScanResult call() {
+      Map<String, FileHits> fileHits = new LinkedHashMap<String, FileHits>();
+      try {
+        if (dirtyContents != null) {
+          matcher.match(dirtyContents, file, fileHits);
+          return new ScanResult(fileHits, true);
+        }
+        if (matcher.isAscii && matchBytes(file, fileHits)) {
+          return new ScanResult(fileHits, false);
+        }
+        fileHits.clear();
+        matcher.match(readContents(file), file, fileHits);
+        return new ScanResult(fileHits, true);
+      }
+      catch (IOException e) {
+        Log.warn("Can't read file for literal search: %s, %s", file, e); //$NON-NLS-1$
+      }
+      catch (CoreException e) {
+        Log.warn("Can't read file for literal search: %s, %s", file, e); //$NON-NLS-1$
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Matches of a file found by a {@link ScanTask}
+   */
+  private static final class ScanResult {
+    final Map<String, FileHits> fileHits;
+    /** <code>false</code>, when the matches were found on the bytes of the file */
+    final boolean isDecoded;
+
+    ScanResult(Map<String, FileHits> fileHits, boolean isDecoded) {
+      this.fileHits = fileHits;
+      this.isDecoded = isDecoded;
+    }
+  }
+
+  /**
+   * Match the class names on the bytes of the file
+   * @return <code>false</code>, when the file must be decoded to find the matches
+   */
+  private boolean matchBytes(IFile file, Map<String, FileHits> fileHits) throws CoreException, IOException {
+    IPath location = file.getLocation();
+    if (location == null || !isAsciiCompatible(file.getCharset())) {
+      return false;
+    }
+    File diskFile = location.toFile();
+    FileInputStream inStream = null;
+    try {
+      inStream = new FileInputStream(diskFile);
+      FileChannel channel = inStream.getChannel();
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        return false;
+      }
+      // Not memory mapped: Mapped files stay locked on windows, until the buffer is garbage collected
+      ByteBuffer bytes = ByteBuffer.allocate((int) size);
+      while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+        // read all
+      }
+      bytes.flip();
+      return matcher.match(new AsciiBytes(bytes), file, fileHits);
+    }
+    finally {
+      UCDetectorPlugin.closeSave(inStream);
+    }
+  }
+
+  /**
+   * Only charsets, where each byte in the ASCII range is an ASCII character. It is not enough, that all ASCII
+   * characters are encoded as a single byte with the same value: In Shift_JIS, GBK, Big5 the second byte of a
+   * double byte character can be in the ASCII range (e.g. 0x5C)
+   * @return <code>true</code>, when the charset is UTF-8, US-ASCII, ISO-8859-* or windows-125x
+   */
+  private static boolean isAsciiCompatible(String charsetName) {
+    Boolean result = ASCII_COMPATIBLE.get(charsetName);
+    if (result == null) {
+      try {
+        String name = Charset.forName(charsetName).name();
+        result = Boolean.valueOf("UTF-8".equals(name) || "US-ASCII".equals(name) //$NON-NLS-1$ //$NON-NLS-2$
+            || name.startsWith("ISO-8859-") || name.matches("windows-125\\d")); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      catch (Exception e) {
+        // IllegalCharsetNameException, UnsupportedCharsetException
+        result = Boolean.FALSE;
+      }
+      ASCII_COMPATIBLE.put(charsetName, result);
+    }
+    return result.booleanValue();
+  }
+
+  private static String readContents(IFile file) throws CoreException, IOException {
+    InputStream inStream = null;
+    try {
+      inStream = file.getContents(true);
+      Reader reader = new InputStreamReader(inStream, file.getCharset());
+      StringBuilder sb = new StringBuilder();
+      char[] buffer = new char[8192];
+      int read;
+      while ((read = reader.read(buffer)) != -1) {
+        sb.append(buffer, 0, read);
+      }
+      return sb.toString();
+    }
+    finally {
+      UCDetectorPlugin.closeSave(inStream);
+    }
+  }
+
+  /**
+   * @return <code>true</code>, when the search string was searched
+   */
+  boolean isSearched(String searchString) {
+    return matcher.indexOf(searchString) >= 0;
+  }
+
+  /**
+   * @return files containing the search string, in the order of the search
+   */
+  List<FileHits> getHits(String searchString) {
+    List<FileHits> result = hits.get(searchString);
+    return result == null ? new ArrayList<FileHits>() : result;
+  }
+
+  /**
+   * Matches of a search string in a file
+   */
+  static final class FileHits {
+    final IFile file;
+    /** All matches, like found by the text search */
+    int matches;
+    /** Matches, which are not part of a longer java identifier */
+    int classNameMatches;
+    /** Like the text search, overlapping matches are not counted */
+    private int lastMatchEnd;
+
+    FileHits(IFile file) {
+      this.file = file;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %s/%s", file.getFullPath(), Integer.valueOf(classNameMatches), //$NON-NLS-1$
+          Integer.valueOf(matches));
+    }
+  }
+
+  /**
+   * Aho-Corasick automaton: Finds all search strings in a text in a single pass
+   */
+  private static final class Matcher {
+    private final String[] patterns;
+    private final Node root = new Node();
+    /** <code>true</code>, when all patterns contain only ASCII characters */
+    private boolean isAscii = true;
+
+    Matcher(String[] patterns) {
+      this.patterns = patterns;
+      for (int i = 0; i < patterns.length; i++) {
+        isAscii &= AsciiBytes.isAscii(patterns[i]);
+        Node node = root;
+        for (char c : patterns[i].toCharArray()) {
+          Node child = node.getChild(c);
+          if (child == null) {
+            child = node.addChild(c);
+          }
+          node = child;
+        }
+        node.pattern = i;
+      }
+      createFailureLinks();
+    }
+
+    /** Breadth first: failure link of a node is the longest proper suffix, which is a prefix of a pattern */
+    private void createFailureLinks() {
+      List<Node> queue = new ArrayList<Node>();
+      for (Node child : root.children) {
+        child.failure = root;
+        queue.add(child);
+      }
+      for (int i = 0; i < queue.size(); i++) {
+        Node node = queue.get(i);
+        for (int c = 0; c < node.chars.length; c++) {
+          Node child = node.children[c];
+          Node failure = node.failure;
+          while (failure != root && failure.getChild(node.chars[c]) == null) {
+            failure = failure.failure;
+          }
+          Node failureChild = failure.getChild(node.chars[c]);
+          child.failure = failureChild == null ? root : failureChild;
+          child.output = child.failure.pattern >= 0 ? child.failure : child.failure.output;
+          queue.add(child);
+        }
+      }
+    }
+
+    int indexOf(String pattern) {
+      Node node = root;
+      for (char c : pattern.toCharArray()) {
+        node = node.getChild(c);
+        if (node == null) {
+          return -1;
+        }
+      }
+      return node.pattern;
+    }
+
+    /**
+     * @param text decoded file contents, or {@link AsciiBytes}
+     * @return <code>false</code>, when text are bytes, and a byte before or after a match is not ASCII
+     */
+    boolean match(CharSequence text, IFile file, Map<String, FileHits> fileHits) {
+      boolean isBytes = text instanceof AsciiBytes;
+      Node node = root;
+      int length = text.length();
+      for (int pos = 0; pos < length; pos++) {
+        char c = text.charAt(pos);
+        Node child = node.getChild(c);
+        while (child == null && node != root) {
+          node = node.failure;
+          child = node.getChild(c);
+        }
+        node = child == null ? root : child;
+        for (Node found = node.pattern >= 0 ? node : node.output; found != null; found = found.output) {
+          String pattern = patterns[found.pattern];
+          int start = pos - pattern.length() + 1;
+          FileHits hit = fileHits.get(pattern);
+          if (hit == null) {
+            hit = new FileHits(file);
+            fileHits.put(pattern, hit);
+          }
+          else if (start < hit.lastMatchEnd) {
+            continue;
+          }
+          hit.lastMatchEnd = pos + 1;
+          hit.matches++;
+          char before = start == 0 ? '\n' : text.charAt(start - 1);
+          char after = pos + 1 >= length ? '\n' : text.charAt(pos + 1);
+          if (isBytes && (before > AsciiBytes.MAX_ASCII || after > AsciiBytes.MAX_ASCII)) {
+            return false; // Part of a multi byte character, or a character of the charset
+          }
+          if (!Character.isJavaIdentifierStart(before) && !Character.isJavaIdentifierPart(after)) {
+            hit.classNameMatches++;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Bytes of a file as characters. ASCII bytes are the same characters, other bytes are characters &gt; 127,
+   * which are never part of a class name
+   */
+  private static final class AsciiBytes implements CharSequence {
+    static final char MAX_ASCII = 127;
+    private final ByteBuffer bytes;
+
+    AsciiBytes(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    static boolean isAscii(String text) {
+      for (int i = 0; i < text.length(); i++) {
+        if (text.charAt(i) > MAX_ASCII) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (bytes.get(index) & 0xFF);
+    }
+
+    @Override
+    public int length() {
+      return bytes.limit();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = start; i < end; i++) {
+        sb.append(charAt(i));
+      }
+      return sb;
+    }
+
+    @Override
+    public String toString() {
+      return subSequence(0, length()).toString();
+    }
+  }
+
+  private static final class Node {
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+    /** sorted */
+    char[] chars = NO_CHARS;
+    Node[] children = NO_NODES;
+    Node failure;
+    /** next node on the failure path, which is the end of a pattern */
+    Node output;
+    /** index of the pattern ending here, or -1 */
+    int pattern = -1;
+
+    Node getChild(char c) {
+      int index = Arrays.binarySearch(chars, c);
+      return index < 0 ? null : children[index];
+    }
+
+    Node addChild(char c) {
+      int index = -Arrays.binarySearch(chars, c) - 1;
+      char[] newChars = new char[chars.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(chars, 0, newChars, 0, index);
+      System.arraycopy(children, 0, newChildren, 0, index);
+      System.arraycopy(chars, index, newChars, index + 1, chars.length - index);
+      System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+      Node child = new Node();
+      newChars[index] = c;
+      newChildren[index] = child;
+      chars = newChars;
+      children = newChildren;
+      return child;
+    }
+  }
+}
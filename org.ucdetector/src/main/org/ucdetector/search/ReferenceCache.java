@@ -0,0 +1,487 @@
+/**
+ * Copyright (c) 2026 agent
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ucdetector.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchRequestor;
+import org.ucdetector.Log;
+import org.ucdetector.UCDetectorPlugin;
+import org.ucdetector.preferences.Prefs;
+import org.ucdetector.util.JavaElementUtil;
+import org.ucdetector.util.StopWatch;
+
+/**
+ * Cache of search results, which is kept between UCDetector runs in the file:
+ * <code>WORKSPACE/.metadata/.plugins/org.ucdetector/referenceCache.dat</code>
+ * <p>
+ * For each class, method, field we remember the number of references, the number of references
+ * in test code, the maximum visibility found and the final/read access state.
+ * Additionally we remember all java files containing matches.<br>
+ * An entry is thrown away, when
+ * <ul>
+ * <li>the java file declaring the member changed</li>
+ * <li>a java file containing matches changed or was deleted</li>
+ * <li>a changed or new java file contains the name of the member</li>
+ * </ul>
+ * Java files are compared by their modification stamp first, and by a hash of their content.
+ * <p>
+ * @author agent
+ * @since 2026-10-17
+ */
+final class ReferenceCache {
+  /** Change this value, when the format of the cache file changes */
+  private static final int VERSION = 1;
+  private static final String CACHE_FILE = "referenceCache.dat"; //$NON-NLS-1$
+  private static final byte UNKNOWN = -1;
+  private final File cacheFile;
+  /** Hash of preferences, which were used to create the cache */
+  private final String preferencesKey;
+  /** java file path -> state of the java file, when the cache was written */
+  private final Map<String, UnitState> storedUnits = new HashMap<String, UnitState>();
+  /** java file path -> state of the java file now */
+  private final Map<String, UnitState> currentUnits = new HashMap<String, UnitState>();
+  /** java files, which changed, or were added or deleted since the cache was written */
+  private final Set<String> changedUnits = new HashSet<String>();
+  /** identifiers found in the changed java files */
+  private final Set<String> changedNames = new HashSet<String>();
+  /** handle identifier of a member -> cached search results */
+  private final Map<String, CacheEntry> entries = new ConcurrentHashMap<String, CacheEntry>();
+
+  private ReferenceCache(File cacheFile, String preferencesKey) {
+    this.cacheFile = cacheFile;
+    this.preferencesKey = preferencesKey;
+  }
+
+  /**
+   * @param monitor to show progress and to check for cancel
+   * @return cache containing valid search results of former UCDetector runs
+   * @throws CoreException when there are problems reading the java model
+   */
+  static ReferenceCache load(UCDProgressMonitor monitor) throws CoreException {
+    StopWatch watch = new StopWatch();
+    File file = new File(UCDetectorPlugin.getDefault().getStateLocation().toFile(), CACHE_FILE);
+    ReferenceCache cache = new ReferenceCache(file, createPreferencesKey());
+    cache.read();
+    int storedEntries = cache.entries.size();
+    cache.checkUnits(monitor);
+    cache.removeInvalidEntries();
+    Log.info("Reference cache: %s changed files, %s of %s cached members valid. %s", //$NON-NLS-1$
+        Integer.valueOf(cache.changedUnits.size()), Integer.valueOf(cache.entries.size()),
+        Integer.valueOf(storedEntries), watch.end("Load reference cache")); //$NON-NLS-1$
+    return cache;
+  }
+
+  /**
+   * Search results depend on preferences like warn limit or visibility checks. Changing
+   * them makes all entries invalid. Performance preferences don't change search results.
+   */
+  private static String createPreferencesKey() {
+    Map<String, String> preferences = new TreeMap<String, String>(UCDetectorPlugin.getDeltaPreferences());
+    for (Iterator<String> keys = preferences.keySet().iterator(); keys.hasNext();) {
+      if (keys.next().startsWith(Prefs.PERFORMANCE_PREFIX)) {
+        keys.remove();
+      }
+    }
+    return createHash(preferences.toString().getBytes());
+  }
+
+  /**
+   * Compare the state of all java files in the workspace with the state stored in the cache
+   */
+  private void checkUnits(UCDProgressMonitor monitor) throws CoreException {
+    IJavaProject[] projects = JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+    for (IJavaProject project : projects) {
+      monitor.throwIfIsCanceled();
+      monitor.subTask("Check reference cache: " + project.getElementName()); //$NON-NLS-1$
+      for (ICompilationUnit unit : JavaElementUtil.getSourceCompilationUnits(project)) {
+        checkUnit(unit);
+      }
+    }
+    for (String path : storedUnits.keySet()) {
+      if (!currentUnits.containsKey(path)) {
+        changedUnits.add(path); // deleted
+      }
+    }
+  }
+
+  private void checkUnit(ICompilationUnit unit) throws CoreException {
+    IResource resource = unit.getResource();
+    if (!(resource instanceof IFile)) {
+      return;
+    }
+    IFile file = (IFile) resource;
+    String path = getPath(file);
+    // Java search finds matches in unsaved editors, too. Such a file is always changed
+    if (unit.hasUnsavedChanges()) {
+      changedUnits.add(path);
+      addIdentifiers(unit.getSource());
+      return;
+    }
+    long stamp = file.getModificationStamp();
+    UnitState stored = storedUnits.get(path);
+    if (stored != null && stored.stamp == stamp) {
+      currentUnits.put(path, stored);
+      return;
+    }
+    byte[] contents;
+    try {
+      contents = readContents(file);
+    }
+    catch (IOException e) {
+      Log.warn("Can't read %s: %s", path, e); //$NON-NLS-1$
+      changedUnits.add(path);
+      return;
+    }
+    String hash = createHash(contents);
+    currentUnits.put(path, new UnitState(stamp, hash));
+    if (stored == null || !stored.hash.equals(hash)) {
+      changedUnits.add(path);
+      addIdentifiers(new String(contents, file.getCharset()));
+    }
+  }
+
+  private static byte[] readContents(IFile file) throws CoreException, IOException {
+    InputStream inStream = null;
+    try {
+      inStream = file.getContents(true);
+      ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = inStream.read(buffer)) != -1) {
+        outStream.write(buffer, 0, read);
+      }
+      return outStream.toByteArray();
+    }
+    finally {
+      UCDetectorPlugin.closeSave(inStream);
+    }
+  }
+
+  private static String createHash(byte[] bytes) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("MD5"); //$NON-NLS-1$
+      return new BigInteger(1, digest.digest(bytes)).toString(16);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Remember all java identifiers of a changed file. Comments and strings are not excluded,
+   * which only causes some additional searches
+   */
+  private void addIdentifiers(String source) {
+    if (source == null) {
+      return;
+    }
+    int pos = 0;
+    while (pos < source.length()) {
+      if (!Character.isJavaIdentifierStart(source.charAt(pos))) {
+        pos++;
+        continue;
+      }
+      int start = pos;
+      while (pos < source.length() && Character.isJavaIdentifierPart(source.charAt(pos))) {
+        pos++;
+      }
+      changedNames.add(source.substring(start, pos));
+    }
+  }
+
+  private void removeInvalidEntries() {
+    for (Iterator<CacheEntry> iterator = entries.values().iterator(); iterator.hasNext();) {
+      if (!isValid(iterator.next())) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private boolean isValid(CacheEntry entry) {
+    if (changedUnits.contains(entry.unit) || changedNames.contains(entry.name)) {
+      return false;
+    }
+    for (String unit : entry.referencingUnits) {
+      if (changedUnits.contains(unit)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // -------------------------------------------------------------------------
+  // QUERY
+  // -------------------------------------------------------------------------
+  /**
+   * @return cached references of the member, or <code>null</code>, when the member must be searched
+   */
+  CacheEntry getReferences(IMember member) {
+    CacheEntry entry = entries.get(member.getHandleIdentifier());
+    return entry == null || entry.found == UNKNOWN ? null : entry;
+  }
+
+  /**
+   * @return <code>true</code>, when the field can be final, or <code>null</code>, when the field must be searched
+   */
+  Boolean getCanMakeFinal(IMember field) {
+    CacheEntry entry = entries.get(field.getHandleIdentifier());
+    return entry == null ? null : toBoolean(entry.canMakeFinal);
+  }
+
+  /**
+   * @return <code>true</code>, when the field has read access, or <code>null</code>, when the field must be searched
+   */
+  Boolean getReadAccess(IMember field) {
+    CacheEntry entry = entries.get(field.getHandleIdentifier());
+    return entry == null ? null : toBoolean(entry.readAccess);
+  }
+
+  void putReferences(IMember member, int found, int foundTest, int visibility, Set<String> referencingUnits) {
+    CacheEntry entry = getOrCreateEntry(member, referencingUnits);
+    if (entry != null) {
+      entry.found = found;
+      entry.foundTest = foundTest;
+      entry.visibility = visibility;
+    }
+  }
+
+  void putCanMakeFinal(IMember field, boolean canMakeFinal, Set<String> referencingUnits) {
+    CacheEntry entry = getOrCreateEntry(field, referencingUnits);
+    if (entry != null) {
+      entry.canMakeFinal = toByte(canMakeFinal);
+    }
+  }
+
+  void putReadAccess(IMember field, boolean readAccess, Set<String> referencingUnits) {
+    CacheEntry entry = getOrCreateEntry(field, referencingUnits);
+    if (entry != null) {
+      entry.readAccess = toByte(readAccess);
+    }
+  }
+
+  /**
+   * A member is searched by one thread only, so there is no need to synchronize entries
+   */
+  private CacheEntry getOrCreateEntry(IMember member, Set<String> referencingUnits) {
+    IResource resource = member.getResource();
+    if (resource == null) {
+      return null;
+    }
+    String path = getPath(resource);
+    if (!currentUnits.containsKey(path)) {
+      return null; // unsaved changes
+    }
+    String key = member.getHandleIdentifier();
+    CacheEntry entry = entries.get(key);
+    if (entry == null) {
+      entry = new CacheEntry(path, member.getElementName());
+      entries.put(key, entry);
+    }
+    entry.referencingUnits.addAll(referencingUnits);
+    return entry;
+  }
+
+  private static Boolean toBoolean(byte value) {
+    return value == UNKNOWN ? null : Boolean.valueOf(value == 1);
+  }
+
+  private static byte toByte(boolean value) {
+    return (byte) (value ? 1 : 0);
+  }
+
+  private static String getPath(IResource resource) {
+    return resource.getFullPath().toString();
+  }
+
+  /**
+   * Remember the java file containing a search match
+   * @param referencingUnits files containing matches
+   * @param match search match
+   */
+  static void addReferencingUnit(Set<String> referencingUnits, SearchMatch match) {
+    IResource resource = match.getResource();
+    if (resource != null) {
+      referencingUnits.add(getPath(resource));
+    }
+  }
+
+  /**
+   * Sends matches to another requestor, and remembers the java files containing the matches
+   */
+  static final class RecordingRequestor extends SearchRequestor {
+    final Set<String> referencingUnits = new HashSet<String>();
+    private final SearchRequestor requestor;
+
+    RecordingRequestor(SearchRequestor requestor) {
+      this.requestor = requestor;
+    }
+
+    @Override
+    public void acceptSearchMatch(SearchMatch match) throws CoreException {
+      addReferencingUnit(referencingUnits, match);
+      requestor.acceptSearchMatch(match);
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // FILE
+  // -------------------------------------------------------------------------
+  private void read() {
+    if (!cacheFile.exists()) {
+      return;
+    }
+    DataInputStream inStream = null;
+    try {
+      inStream = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+      if (inStream.readInt() != VERSION || !preferencesKey.equals(inStream.readUTF())) {
+        Log.info("Reference cache is not used, because UCDetector version or preferences changed"); //$NON-NLS-1$
+        return;
+      }
+      int unitCount = inStream.readInt();
+      for (int i = 0; i < unitCount; i++) {
+        storedUnits.put(inStream.readUTF(), new UnitState(inStream.readLong(), inStream.readUTF()));
+      }
+      int entryCount = inStream.readInt();
+      for (int i = 0; i < entryCount; i++) {
+        String key = inStream.readUTF();
+        CacheEntry entry = new CacheEntry(inStream.readUTF(), inStream.readUTF());
+        entry.found = inStream.readInt();
+        entry.foundTest = inStream.readInt();
+        entry.visibility = inStream.readInt();
+        entry.canMakeFinal = inStream.readByte();
+        entry.readAccess = inStream.readByte();
+        int referencingCount = inStream.readInt();
+        for (int j = 0; j < referencingCount; j++) {
+          entry.referencingUnits.add(inStream.readUTF());
+        }
+        entries.put(key, entry);
+      }
+    }
+    catch (IOException e) {
+      Log.warn("Can't read reference cache %s: %s", cacheFile, e); //$NON-NLS-1$
+      storedUnits.clear();
+      entries.clear();
+    }
+    finally {
+      UCDetectorPlugin.closeSave(inStream);
+    }
+  }
+
+  /**
+   * Write the cache file, so the next UCDetector run can use the search results of this run
+   */
+  void save() {
+    StopWatch watch = new StopWatch();
+    DataOutputStream outStream = null;
+    try {
+      outStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)));
+      outStream.writeInt(VERSION);
+      outStream.writeUTF(preferencesKey);
+      outStream.writeInt(currentUnits.size());
+      for (Entry<String, UnitState> unit : currentUnits.entrySet()) {
+        outStream.writeUTF(unit.getKey());
+        outStream.writeLong(unit.getValue().stamp);
+        outStream.writeUTF(unit.getValue().hash);
+      }
+      outStream.writeInt(entries.size());
+      for (Entry<String, CacheEntry> mapEntry : entries.entrySet()) {
+        CacheEntry entry = mapEntry.getValue();
+        outStream.writeUTF(mapEntry.getKey());
+        outStream.writeUTF(entry.unit);
+        outStream.writeUTF(entry.name);
+        outStream.writeInt(entry.found);
+        outStream.writeInt(entry.foundTest);
+        outStream.writeInt(entry.visibility);
+        outStream.writeByte(entry.canMakeFinal);
+        outStream.writeByte(entry.readAccess);
+        outStream.writeInt(entry.referencingUnits.size());
+        for (String unit : entry.referencingUnits) {
+          outStream.writeUTF(unit);
+        }
+      }
+      Log.info("Reference cache: %s members saved. %s", Integer.valueOf(entries.size()), //$NON-NLS-1$
+          watch.end("Save reference cache")); //$NON-NLS-1$
+    }
+    catch (IOException e) {
+      Log.warn("Can't write reference cache %s: %s", cacheFile, e); //$NON-NLS-1$
+    }
+    finally {
+      UCDetectorPlugin.closeSave(outStream);
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // DATA
+  // -------------------------------------------------------------------------
+  private static final class UnitState {
+    final long stamp;
+    final String hash;
+
+    UnitState(long stamp, String hash) {
+      this.stamp = stamp;
+      this.hash = hash;
+    }
+  }
+
+  /**
+   * Cached search results of a class, method or field
+   */
+  static final class CacheEntry {
+    /** java file declaring the member */
+    final String unit;
+    final String name;
+    /** java files containing matches */
+    final Set<String> referencingUnits = new HashSet<String>();
+    int found = UNKNOWN;
+    int foundTest = 0;
+    /** See {@link VisibilityHandler#getMaxVisibilityFoundValue()} */
+    int visibility = 0;
+    byte canMakeFinal = UNKNOWN;
+    byte readAccess = UNKNOWN;
+
+    CacheEntry(String unit, String name) {
+      this.unit = unit;
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s found=%s, foundTest=%s", name, Integer.valueOf(found), Integer.valueOf(foundTest)); //$NON-NLS-1$
+    }
+  }
+}
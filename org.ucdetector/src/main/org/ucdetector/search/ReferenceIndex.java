@@ -0,0 +1,572 @@
+/**
+ * Copyright (c) 2026 agent
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ucdetector.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ConstructorInvocation;
+import org.eclipse.jdt.core.dom.EnumConstantDeclaration;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.ParenthesizedExpression;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
+import org.eclipse.jdt.core.dom.SuperFieldAccess;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.search.FieldReferenceMatch;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchRequestor;
+import org.ucdetector.Log;
+import org.ucdetector.UCDetectorPlugin;
+import org.ucdetector.util.JavaElementUtil;
+import org.ucdetector.util.StopWatch;
+
+/**
+ * Reverse reference index: All source files of the workspace are parsed once with resolved bindings.
+ * For each class, method, field we remember the java elements referencing it.<p>
+ * The index answers the questions, which are otherwise answered by a jdt search for each member:
+ * <ul>
+ * <li>references, read accesses, write accesses</li>
+ * <li>is a method overridden</li>
+ * <li>has a type sub classes</li>
+ * </ul>
+ * Matches are stored as {@link SearchMatch}, so the same search requestors could be used.
+ * <p>
+ * @author agent
+ * @since 2026-10-17
+ */
+final class ReferenceIndex {
+  /** Number of compilation units parsed together, sharing their bindings */
+  private static final int BATCH_SIZE = 200;
+  /** referenced element -> matches */
+  private final Map<IJavaElement, List<SearchMatch>> references = new HashMap<IJavaElement, List<SearchMatch>>();
+  /** methods overriding or overridden by a method */
+  private final Set<IJavaElement> overriddenMethods = new HashSet<IJavaElement>();
+  /** types, which have sub classes */
+  private final Set<IJavaElement> typesWithSubClasses = new HashSet<IJavaElement>();
+  private final SearchParticipant participant = SearchEngine.getDefaultSearchParticipant();
+  private final UCDProgressMonitor monitor;
+  private int parsedUnits = 0;
+  private int matches = 0;
+
+  private ReferenceIndex(UCDProgressMonitor monitor) {
+    this.monitor = monitor;
+  }
+
+  /**
+   * @param monitor to show progress and to check for cancel
+   * @return an index containing references of all source files in the workspace
+   * @throws CoreException when there are problems reading the java model
+   */
+  static ReferenceIndex build(UCDProgressMonitor monitor) throws CoreException {
+    StopWatch watch = new StopWatch();
+    ReferenceIndex index = new ReferenceIndex(monitor);
+    IJavaProject[] projects = JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+    for (IJavaProject project : projects) {
+      index.parseProject(project);
+    }
+    Log.info("Reference index: %s files, %s referenced elements, %s matches. %s", //$NON-NLS-1$
+        Integer.valueOf(index.parsedUnits), Integer.valueOf(index.references.size()), Integer.valueOf(index.matches),
+        watch.end("Create reference index")); //$NON-NLS-1$
+    return index;
+  }
+
+  private void parseProject(IJavaProject project) throws CoreException {
+    List<ICompilationUnit> units = JavaElementUtil.getSourceCompilationUnits(project);
+    for (int start = 0; start < units.size(); start += BATCH_SIZE) {
+      monitor.throwIfIsCanceled();
+      List<ICompilationUnit> batch = units.subList(start, Math.min(start + BATCH_SIZE, units.size()));
+      monitor.subTask(String.format("Create reference index: %s (%s/%s)", project.getElementName(), //$NON-NLS-1$
+          Integer.valueOf(start), Integer.valueOf(units.size())));
+      ASTParser parser = UCDetectorPlugin.newASTParser();
+      parser.setProject(project);
+      parser.setKind(ASTParser.K_COMPILATION_UNIT);
+      parser.setResolveBindings(true);
+      ICompilationUnit[] batchArray = batch.toArray(new ICompilationUnit[batch.size()]);
+      parser.createASTs(batchArray, new String[0], new ASTRequestor() {
+        @Override
+        public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+          parsedUnits++;
+          ast.accept(new ReferenceVisitor(source));
+        }
+      }, null);
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // QUERY
+  // -------------------------------------------------------------------------
+  /**
+   * Like a jdt search: Send matches to the requestor
+   * @param element referenced class, method or field
+   * @param limitTo one of {@link IJavaSearchConstants#REFERENCES}, {@link IJavaSearchConstants#READ_ACCESSES},
+   *                {@link IJavaSearchConstants#WRITE_ACCESSES}
+   * @param requestor receives matches. Requestor may throw an {@link OperationCanceledException} to stop search
+   */
+  void search(IJavaElement element, int limitTo, SearchRequestor requestor) {
+    List<SearchMatch> elementMatches = references.get(element);
+    if (elementMatches == null) {
+      return;
+    }
+    try {
+      for (SearchMatch match : elementMatches) {
+        if (isLimitTo(match, limitTo)) {
+          requestor.acceptSearchMatch(match);
+        }
+      }
+    }
+    catch (OperationCanceledException e) {
+      // ignore, do not log. Same as JavaElementUtil.runSearch()
+    }
+    catch (CoreException e) {
+      Log.error("Can't search in reference index: " + JavaElementUtil.getElementName(element), e); //$NON-NLS-1$
+    }
+  }
+
+  private static boolean isLimitTo(SearchMatch match, int limitTo) {
+    if (limitTo == IJavaSearchConstants.REFERENCES || !(match instanceof FieldReferenceMatch)) {
+      return true;
+    }
+    FieldReferenceMatch fieldMatch = (FieldReferenceMatch) match;
+    return limitTo == IJavaSearchConstants.READ_ACCESSES ? fieldMatch.isReadAccess() : fieldMatch.isWriteAccess();
+  }
+
+  /**
+   * @param method method to check
+   * @return same as {@link JavaElementUtil#isOverriddenMethod(IMethod)}
+   * @throws CoreException if this element does not exist
+   */
+  boolean isOverriddenMethod(IMethod method) throws CoreException {
+    int flags = method.getFlags();
+    if (method.isConstructor() || Flags.isStatic(flags) || Flags.isPrivate(flags)) {
+      return false;
+    }
+    if (JavaElementUtil.hasOverrideAnnotation(method)) {
+      return true;//[ 3438795 ] Ignore @Override methods
+    }
+    return overriddenMethods.contains(method);
+  }
+
+  /**
+   * @param type type to check
+   * @return same as {@link JavaElementUtil#hasSubClasses(IType)}
+   */
+  boolean hasSubClasses(IType type) {
+    return typesWithSubClasses.contains(type);
+  }
+
+  // -------------------------------------------------------------------------
+  // CREATE INDEX
+  // -------------------------------------------------------------------------
+  private void addMatch(IBinding binding, ASTNode node, ICompilationUnit unit, boolean isField) {
+    IJavaElement referenced = getSourceElement(binding);
+    if (referenced == null) {
+      return;
+    }
+    IJavaElement enclosing;
+    try {
+      enclosing = unit.getElementAt(node.getStartPosition());
+    }
+    catch (CoreException e) {
+      Log.warn("Can't get element at %s: %s", Integer.valueOf(node.getStartPosition()), e); //$NON-NLS-1$
+      return;
+    }
+    if (enclosing == null) {
+      return;
+    }
+    IResource resource = unit.getResource();
+    int accuracy = binding.isRecovered() ? SearchMatch.A_INACCURATE : SearchMatch.A_ACCURATE;
+    int offset = node.getStartPosition();
+    int length = node.getLength();
+    SearchMatch match;
+    if (isField) {
+      boolean isWrite = isWriteAccess(node);
+      boolean isRead = !isWrite || isReadWriteAccess(node);
+      match = new FieldReferenceMatch(enclosing, accuracy, offset, length, isRead, isWrite, false, participant,
+          resource);
+    }
+    else {
+      match = new SearchMatch(enclosing, accuracy, offset, length, participant, resource);
+    }
+    addMatch(referenced, match);
+    // A call of an implementing method is also a reference to the interface method
+    if (binding instanceof IMethodBinding) {
+      IMethodBinding method = ((IMethodBinding) binding).getMethodDeclaration();
+      for (IMethodBinding overridden : getOverriddenMethods(method)) {
+        IJavaElement overriddenElement = getSourceElement(overridden);
+        if (overriddenElement != null) {
+          addMatch(overriddenElement, match);
+        }
+      }
+    }
+  }
+
+  private void addMatch(IJavaElement referenced, SearchMatch match) {
+    List<SearchMatch> elementMatches = references.get(referenced);
+    if (elementMatches == null) {
+      elementMatches = new ArrayList<SearchMatch>(2);
+      references.put(referenced, elementMatches);
+    }
+    elementMatches.add(match);
+    matches++;
+  }
+
+  /**
+   * @return the java element of a binding, if it is a class, method, field declared in source code
+   */
+  private static IJavaElement getSourceElement(IBinding binding) {
+    if (binding == null) {
+      return null;
+    }
+    IBinding declaration = null;
+    switch (binding.getKind()) {
+      case IBinding.TYPE:
+        ITypeBinding type = (ITypeBinding) binding;
+        if (type.isArray()) {
+          type = type.getElementType();
+        }
+        declaration = type.isPrimitive() || type.isTypeVariable() ? null : type.getTypeDeclaration();
+        break;
+      case IBinding.METHOD:
+        declaration = ((IMethodBinding) binding).getMethodDeclaration();
+        break;
+      case IBinding.VARIABLE:
+        IVariableBinding variable = (IVariableBinding) binding;
+        declaration = variable.isField() ? variable.getVariableDeclaration() : null;
+        break;
+      default:
+        break;
+    }
+    IJavaElement element = declaration == null ? null : declaration.getJavaElement();
+    if (element instanceof IMember && !((IMember) element).isBinary()) {
+      return element;
+    }
+    return null;
+  }
+
+  /**
+   * @return methods of super classes and interfaces, which are overridden by method
+   */
+  private static List<IMethodBinding> getOverriddenMethods(IMethodBinding method) {
+    List<IMethodBinding> result = new ArrayList<IMethodBinding>();
+    if (method.isConstructor() || Flags.isStatic(method.getModifiers()) || Flags.isPrivate(method.getModifiers())) {
+      return result;
+    }
+    ITypeBinding declaringClass = method.getDeclaringClass();
+    if (declaringClass != null) {
+      addOverriddenMethods(method, declaringClass, result, new HashSet<ITypeBinding>());
+    }
+    return result;
+  }
+
+  private static void addOverriddenMethods(IMethodBinding method, ITypeBinding type, List<IMethodBinding> result,
+      Set<ITypeBinding> visited) {
+    List<ITypeBinding> superTypes = new ArrayList<ITypeBinding>();
+    if (type.getSuperclass() != null) {
+      superTypes.add(type.getSuperclass());
+    }
+    for (ITypeBinding superInterface : type.getInterfaces()) {
+      superTypes.add(superInterface);
+    }
+    for (ITypeBinding superType : superTypes) {
+      ITypeBinding superDeclaration = superType.getTypeDeclaration();
+      if (!visited.add(superDeclaration)) {
+        continue;
+      }
+      for (IMethodBinding superMethod : superType.getDeclaredMethods()) {
+        if (method.overrides(superMethod)) {
+          result.add(superMethod.getMethodDeclaration());
+        }
+      }
+      addOverriddenMethods(method, superType, result, visited);
+    }
+  }
+
+  /**
+   * @param type class, which constructor calls a constructor of its super class
+   * @param parameterTypes parameter types of the called super constructor
+   * @return constructor of the super class, which is called, or <code>null</code>
+   */
+  private static IMethodBinding getSuperConstructor(ITypeBinding type, ITypeBinding[] parameterTypes) {
+    ITypeBinding superClass = type == null ? null : type.getSuperclass();
+    if (superClass == null) {
+      return null;
+    }
+    for (IMethodBinding method : superClass.getDeclaredMethods()) {
+      if (method.isConstructor() && isSameParameters(method, parameterTypes)) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isSameParameters(IMethodBinding method, ITypeBinding[] parameterTypes) {
+    ITypeBinding[] methodParameterTypes = method.getParameterTypes();
+    // super() calls A(String... args)
+    if (parameterTypes.length == 0 && method.isVarargs() && methodParameterTypes.length == 1) {
+      return true;
+    }
+    if (methodParameterTypes.length != parameterTypes.length) {
+      return false;
+    }
+    for (int i = 0; i < parameterTypes.length; i++) {
+      if (!methodParameterTypes[i].getErasure().isEqualTo(parameterTypes[i].getErasure())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return <code>true</code>, when the constructor starts with <code>this(..)</code> or <code>super(..)</code>
+   */
+  private static boolean callsConstructor(MethodDeclaration constructor) {
+    List<?> statements = constructor.getBody().statements();
+    if (statements.isEmpty()) {
+      return false;
+    }
+    Object first = statements.get(0);
+    return first instanceof ConstructorInvocation || first instanceof SuperConstructorInvocation;
+  }
+
+  private static boolean declaresConstructor(TypeDeclaration type) {
+    for (MethodDeclaration method : type.getMethods()) {
+      if (method.isConstructor()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void addSubClass(ITypeBinding type) {
+    if (type == null) {
+      return;
+    }
+    ITypeBinding superClass = type.getSuperclass();
+    if (superClass != null) {
+      addTypeWithSubClasses(superClass);
+    }
+    for (ITypeBinding superInterface : type.getInterfaces()) {
+      addTypeWithSubClasses(superInterface);
+    }
+  }
+
+  private void addTypeWithSubClasses(ITypeBinding superType) {
+    IJavaElement superElement = getSourceElement(superType);
+    if (superElement != null) {
+      typesWithSubClasses.add(superElement);
+    }
+  }
+
+  /**
+   * @return <code>true</code>, when the field name is the left hand side of an assignment,
+   * or it is incremented, decremented
+   */
+  private static boolean isWriteAccess(ASTNode name) {
+    ASTNode node = getFieldExpression(name);
+    ASTNode parent = node.getParent();
+    if (parent instanceof Assignment) {
+      return ((Assignment) parent).getLeftHandSide() == node;
+    }
+    return isIncrementOrDecrement(node);
+  }
+
+  /**
+   * @return <code>true</code>, for: <code>field += 1</code>, <code>field++</code>
+   */
+  private static boolean isReadWriteAccess(ASTNode name) {
+    ASTNode node = getFieldExpression(name);
+    ASTNode parent = node.getParent();
+    if (parent instanceof Assignment) {
+      return ((Assignment) parent).getOperator() != Assignment.Operator.ASSIGN;
+    }
+    return isIncrementOrDecrement(node);
+  }
+
+  private static boolean isIncrementOrDecrement(ASTNode node) {
+    ASTNode parent = node.getParent();
+    if (parent instanceof PostfixExpression) {
+      return true;
+    }
+    if (parent instanceof PrefixExpression) {
+      PrefixExpression.Operator operator = ((PrefixExpression) parent).getOperator();
+      return operator == PrefixExpression.Operator.INCREMENT || operator == PrefixExpression.Operator.DECREMENT;
+    }
+    return false;
+  }
+
+  /**
+   * @return the expression containing the field name: <code>this.field</code>, <code>Clazz.field</code>, <code>(field)</code>
+   */
+  private static ASTNode getFieldExpression(ASTNode name) {
+    ASTNode node = name;
+    while (true) {
+      ASTNode parent = node.getParent();
+      if (parent instanceof QualifiedName && ((QualifiedName) parent).getName() == node //
+          || parent instanceof FieldAccess && ((FieldAccess) parent).getName() == node //
+          || parent instanceof SuperFieldAccess && ((SuperFieldAccess) parent).getName() == node //
+          || parent instanceof ParenthesizedExpression) {
+        node = parent;
+        continue;
+      }
+      return node;
+    }
+  }
+
+  /**
+   * Find all references in a compilation unit. Javadoc is ignored
+   */
+  private final class ReferenceVisitor extends ASTVisitor {
+    private final ICompilationUnit unit;
+
+    ReferenceVisitor(ICompilationUnit unit) {
+      super(false);
+      this.unit = unit;
+    }
+
+    @Override
+    public boolean visit(SimpleName node) {
+      if (node.isDeclaration()) {
+        return false;
+      }
+      IBinding binding = node.resolveBinding();
+      if (binding != null) {
+        boolean isField = binding instanceof IVariableBinding && ((IVariableBinding) binding).isField();
+        addMatch(binding, node, unit, isField);
+      }
+      return false;
+    }
+
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+      IMethodBinding constructor = node.resolveConstructorBinding();
+      if (constructor != null && constructor.getDeclaringClass().isAnonymous()) {
+        // new A(x) {}: The constructor of the anonymous class calls A(x)
+        constructor = getSuperConstructor(constructor.getDeclaringClass(), constructor.getParameterTypes());
+      }
+      addConstructorMatch(constructor, node);
+      return true;
+    }
+
+    @Override
+    public boolean visit(ConstructorInvocation node) {
+      addConstructorMatch(node.resolveConstructorBinding(), node);
+      return true;
+    }
+
+    @Override
+    public boolean visit(SuperConstructorInvocation node) {
+      addConstructorMatch(node.resolveConstructorBinding(), node);
+      return true;
+    }
+
+    @Override
+    public boolean visit(EnumConstantDeclaration node) {
+      addConstructorMatch(node.resolveConstructorBinding(), node);
+      return true;
+    }
+
+    @Override
+    public boolean visit(TypeDeclaration node) {
+      ITypeBinding type = node.resolveBinding();
+      addSubClass(type);
+      if (!node.isInterface() && !declaresConstructor(node)) {
+        // The default constructor calls super()
+        addImplicitSuperConstructorMatch(type, node.getName());
+      }
+      return true;
+    }
+
+    @Override
+    public boolean visit(EnumDeclaration node) {
+      addSubClass(node.resolveBinding());
+      return true;
+    }
+
+    @Override
+    public boolean visit(AnonymousClassDeclaration node) {
+      addSubClass(node.resolveBinding());
+      return true;
+    }
+
+    @Override
+    public boolean visit(MethodDeclaration node) {
+      IMethodBinding method = node.resolveBinding();
+      if (node.isConstructor() && node.getBody() != null && !callsConstructor(node)) {
+        // The constructor calls super() implicitly
+        addImplicitSuperConstructorMatch(method == null ? null : method.getDeclaringClass(), node.getName());
+      }
+      if (method != null) {
+        List<IMethodBinding> overriddenList = getOverriddenMethods(method);
+        if (!overriddenList.isEmpty()) {
+          addOverriddenMethod(method);
+          for (IMethodBinding overridden : overriddenList) {
+            addOverriddenMethod(overridden);
+          }
+        }
+      }
+      return true;
+    }
+
+    private void addOverriddenMethod(IMethodBinding method) {
+      IJavaElement element = getSourceElement(method);
+      if (element != null) {
+        overriddenMethods.add(element);
+      }
+    }
+
+    /**
+     * Enums extend java.lang.Enum, which is not in source code, so there is nothing to add for them
+     */
+    private void addImplicitSuperConstructorMatch(ITypeBinding type, ASTNode node) {
+      addConstructorMatch(getSuperConstructor(type, new ITypeBinding[0]), node);
+    }
+
+    private void addConstructorMatch(IMethodBinding constructor, ASTNode node) {
+      if (constructor != null) {
+        addMatch(constructor, node, unit, false);
+      }
+    }
+  }
+}
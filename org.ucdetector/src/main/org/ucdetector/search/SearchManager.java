@@ -8,8 +8,28 @@
 package org.ucdetector.search;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.CoreException;
@@ -18,15 +38,21 @@ import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IImportDeclaration;
 import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IOpenable;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.FieldReferenceMatch;
 import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.MethodReferenceMatch;
 import org.eclipse.jdt.core.search.SearchMatch;
 import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.SearchRequestor;
@@ -40,7 +66,7 @@ import org.ucdetector.Messages;
 import org.ucdetector.UCDInfo;
 import org.ucdetector.UCDetectorPlugin;
 import org.ucdetector.iterator.TypeContainer;
-import org.ucdetector.preferences.Prefs;
+import org.ucdetector.preferences.DetectionConfig;
 import org.ucdetector.report.ReportParam;
 import org.ucdetector.util.JavaElementUtil;
 import org.ucdetector.util.MarkerFactory;
@@ -56,33 +82,53 @@ public class SearchManager {
   private static final boolean DEBUG = Log.isDebugOption("org.ucdetector/debug/search"); //$NON-NLS-1$
   /** Information for user, that we are searching for final stuff */
   private static final String SEARCH_FINAL_MESSAGE = "final"; //$NON-NLS-1$
-  /** Get Information about code lines in source code files   */
-  private final LineManger lineManger = new LineManger();
+  /** Get Information about code lines in source code files. Acquired, while {@link #search(Set)} is running */
+  private LineManger lineManger;
+  /** Preferences read when the detection started */
+  private final DetectionConfig config;
   /** Show progress to user */
   private final UCDProgressMonitor monitor;
   /** Number of classes, methods, fields to search */
   private final int searchTotal;
   /** Number UCDetector problems already found */
-  private int markerCreated;
+  private final AtomicInteger markerCreated = new AtomicInteger();
   /** Number of classes, methods, fields already searched */
-  private int search = 0;
+  private final AtomicInteger search = new AtomicInteger();
   /** shortcut to skip methods and fields of classes which have no references */
-  private final List<IType> noRefTypes = new ArrayList<IType>();
+  private final Set<IType> noRefTypes = Collections.newSetFromMap(new ConcurrentHashMap<IType, Boolean>());
   /** Skip search for enum constants, because they are used by value() or valueOf() */
   private final UsedByValueEnumsCache usedByValueEnumsCache = new UsedByValueEnumsCache();
   /** contains all exceptions happened during search */
-  private final List<IStatus> searchProblems = new ArrayList<IStatus>();
+  private final List<IStatus> searchProblems = new CopyOnWriteArrayList<IStatus>();
   /** Factory to create markers */
   private final MarkerFactory markerFactory;
   /** handle final stuff   */
   private final FinalHandler finalHandler;
+  /** Answers search questions, when the reference index is switched on. Otherwise <code>null</code> */
+  private ReferenceIndex referenceIndex;
+  /** Search results of former UCDetector runs, when the reference cache is switched on. Otherwise <code>null</code> */
+  private ReferenceCache referenceCache;
+  /**
+   * Search results of members found by a batch search. See {@link #batchSearch(TypeContainer)}<br>
+   * and of fields found by a search for all field accesses. See {@link #searchFieldAccesses(IField)}
+   */
+  private final Map<IMember, UCDSearchRequestor> batchResults = new ConcurrentHashMap<IMember, UCDSearchRequestor>();
+  /** Classes to search, needed to create the {@link #literalSearch} */
+  private Set<TypeContainer> typeContainers = Collections.emptySet();
+  /** Class names found in text files. Created, when the first class name is searched */
+  private LiteralSearch literalSearch;
+  /** <code>true</code>, when creating the {@link #literalSearch} failed */
+  private boolean isLiteralSearchFailed = false;
+  /** Stop worker threads, when parallel search ends */
+  private volatile boolean stopSearch = false;
 
-  public SearchManager(UCDProgressMonitor monitor, int searchTotal, MarkerFactory markerFactory) {
+  public SearchManager(UCDProgressMonitor monitor, int searchTotal, MarkerFactory markerFactory,
+      DetectionConfig config) {
     this.monitor = monitor;
     this.searchTotal = searchTotal;
     this.markerFactory = markerFactory;
-    this.finalHandler = new FinalHandler(markerFactory);
-    ReportParam.lineManager = lineManger;// Hack :-(
+    this.config = config;
+    this.finalHandler = new FinalHandler(config, markerFactory);
   }
 
   /**
@@ -91,25 +137,51 @@ public class SearchManager {
    */
   public final void search(Set<TypeContainer> typeContainers) {
     logStart(typeContainers);
+    this.typeContainers = typeContainers;
+    int threads = config.getSearchThreads();
+    JavaElementUtil.clearSearchScopeCache();
+    lineManger = LineManger.acquire(config);
+    ReportParam.lineManager = lineManger;// Hack :-(
     try {
-      int pos = 0;
-      for (TypeContainer container : typeContainers) {
-        if (monitor.isCanceled()) {
-          return;
-        }
-        pos++;
-        if (Log.isDebug()) {
-          Log.debug(getProgress(typeContainers, pos, container));
+      if (config.isReferenceIndex()) {
+        if (config.isReferenceCache()) {
+          // The index contains all references, so there is nothing to cache
+          Log.warn("Reference cache is not used, because reference index is switched on"); //$NON-NLS-1$
         }
-        else if (pos == 1 || pos % 10 == 0 || pos == typeContainers.size()) {
-          Log.info(getProgress(typeContainers, pos, container));
-        }
-        search(container);
+        referenceIndex = ReferenceIndex.build(monitor);
+        finalHandler.setReferenceIndex(referenceIndex);
+      }
+      else if (config.isReferenceCache()) {
+        referenceCache = ReferenceCache.load(monitor);
+        finalHandler.setReferenceCache(referenceCache);
+      }
+      usedByValueEnumsCache.searchEnums(typeContainers);
+      if (config.isPreParse()) {
+        lineManger.preParse(getCompilationUnits(typeContainers), threads, monitor);
+      }
+      if (threads > 1 && typeContainers.size() > 1) {
+        searchParallel(typeContainers, threads);
+      }
+      else {
+        searchSerial(typeContainers);
       }
     }
     catch (OperationCanceledException e) {
       Log.info("Stop searching because: " + UCDProgressMonitor.CANCEL_MESSAGE); //$NON-NLS-1$
     }
+    catch (CoreException e) {
+      Log.error("Can't create reference index or reference cache", e); //$NON-NLS-1$
+    }
+    finally {
+      if (ReportParam.lineManager == lineManger) {
+        ReportParam.lineManager = null;
+      }
+      lineManger.release();
+    }
+    if (referenceCache != null) {
+      referenceCache.save();
+    }
+    lineManger.logStatistics();
     Log.info("Search end: " + UCDInfo.getNow(true)); //$NON-NLS-1$
     if (searchProblems.size() > 0) {
       IStatus[] stati = searchProblems.toArray(new IStatus[searchProblems.size()]);
@@ -119,6 +191,167 @@ public class SearchManager {
     }
   }
 
+  /**
+   * @return java files containing the classes to search. Containers without class (only methods or fields
+   * selected) are ignored
+   */
+  private static Set<ICompilationUnit> getCompilationUnits(Set<TypeContainer> typeContainers) {
+    Set<ICompilationUnit> compilationUnits = new LinkedHashSet<ICompilationUnit>();
+    for (TypeContainer typeContainer : typeContainers) {
+      if (typeContainer.getType() == null) {
+        continue;
+      }
+      ICompilationUnit compilationUnit = typeContainer.getType().getCompilationUnit();
+      if (compilationUnit != null) {
+        compilationUnits.add(compilationUnit);
+      }
+    }
+    return compilationUnits;
+  }
+
+  private void searchSerial(Set<TypeContainer> typeContainers) {
+    int pos = 0;
+    for (TypeContainer container : typeContainers) {
+      if (monitor.isCanceled()) {
+        return;
+      }
+      pos++;
+      logProgress(typeContainers, pos, container);
+      search(container);
+    }
+  }
+
+  /**
+   * Search type containers using a pool of worker threads.<br>
+   * Each worker collects the markers of its type container. The markers are reported
+   * in the order of the type containers, so the result is the same as searching
+   * with a single thread.
+   */
+  private void searchParallel(Set<TypeContainer> typeContainers, int threads) {
+    Log.info("    Search threads   : " + threads); //$NON-NLS-1$
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new SearchThreadFactory());
+    try {
+      List<Future<ContainerResult>> results = new ArrayList<Future<ContainerResult>>();
+      for (TypeContainer container : typeContainers) {
+        results.add(executor.submit(new SearchContainerTask(container)));
+      }
+      Iterator<TypeContainer> containers = typeContainers.iterator();
+      int pos = 0;
+      for (Future<ContainerResult> future : results) {
+        TypeContainer container = containers.next();
+        pos++;
+        ContainerResult result = waitForResult(future);
+        logProgress(typeContainers, pos, container);
+        markerFactory.reportBufferedMarkers(result.markers);
+        if (result.canceled != null) {
+          throw result.canceled;
+        }
+      }
+    }
+    catch (CoreException e) {
+      Log.error("Can't report markers", e); //$NON-NLS-1$
+    }
+    finally {
+      stopSearch = true;
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Wait for the worker, but check every half second, if the user canceled the search
+   */
+  private ContainerResult waitForResult(Future<ContainerResult> result) {
+    while (true) {
+      checkForCancel();
+      try {
+        return result.get(500, TimeUnit.MILLISECONDS);
+      }
+      catch (TimeoutException e) {
+        continue;
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OperationCanceledException("Search thread interrupted"); //$NON-NLS-1$
+      }
+      catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause; // OperationCanceledException, too
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+      }
+    }
+  }
+
+  /**
+   * Search all members of a type container in a worker thread, and collect its markers
+   */
+  private final class SearchContainerTask implements Callable<ContainerResult> {
+    private final TypeContainer container;
+
+    SearchContainerTask(TypeContainer container) {
+      this.container = container;
+    }
+
+    @Override
+    public ContainerResult call() {
+      List<ReportParam> markers;
+      OperationCanceledException canceled = null;
+      markerFactory.startBuffering();
+      try {
+        search(container);
+      }
+      catch (OperationCanceledException e) {
+        canceled = e;
+      }
+      finally {
+        markers = markerFactory.endBuffering();
+      }
+      return new ContainerResult(markers, canceled);
+    }
+  }
+
+  /**
+   * Markers found searching a type container. When the search was canceled,
+   * the markers found before canceling are reported, like in single threaded search
+   */
+  private static final class ContainerResult {
+    final List<ReportParam> markers;
+    final OperationCanceledException canceled;
+
+    ContainerResult(List<ReportParam> markers, OperationCanceledException canceled) {
+      this.markers = markers;
+      this.canceled = canceled;
+    }
+  }
+
+  /**
+   * Name search threads and give them a lower priority, to keep eclipse responsive
+   */
+  static final class SearchThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "UCDetector search " + threadNumber.incrementAndGet()); //$NON-NLS-1$
+      thread.setDaemon(true);
+      thread.setPriority(Thread.NORM_PRIORITY - 1);
+      return thread;
+    }
+  }
+
+  private void logProgress(Set<TypeContainer> typeContainers, int pos, TypeContainer container) {
+    if (Log.isDebug()) {
+      Log.debug(getProgress(typeContainers, pos, container));
+    }
+    else if (pos == 1 || pos % 10 == 0 || pos == typeContainers.size()) {
+      Log.info(getProgress(typeContainers, pos, container));
+    }
+  }
+
   private static void logStart(Set<TypeContainer> typeContainers) {
     int methodsToDetect = 0;
     int fieldsToDetect = 0;
@@ -136,21 +369,113 @@ public class SearchManager {
     if (container.getType() != null) {
       searchAndHandleException(container.getType());
     }
-    for (IMethod method : container.getMethods()) {
-      searchAndHandleException(method);
+    List<IMember> batchMembers = Collections.emptyList();
+    if (config.isBatchSearch() && referenceIndex == null) {
+      batchMembers = batchSearch(container);
     }
-    for (IField field : container.getFields()) {
-      searchAndHandleException(field);
+    try {
+      for (IMethod method : container.getMethods()) {
+        searchAndHandleException(method);
+      }
+      for (IField field : container.getFields()) {
+        searchAndHandleException(field);
+      }
+    }
+    finally {
+      for (IMember member : batchMembers) {
+        batchResults.remove(member);
+      }
+      // searchFieldAccesses() puts fields, which are not part of the batch. Filtered fields never use them
+      for (IField field : container.getFields()) {
+        batchResults.remove(field);
+      }
     }
   }
 
+  /**
+   * Search references of the methods and fields of a type container with a single jdt search,
+   * using an 'or' pattern. The matches are sent to the requestors of the members.<br>
+   * Members with the same name (overloaded methods) are not part of the batch, they are searched one by one.
+   * @return members, which have a search result in {@link #batchResults}
+   */
+  private List<IMember> batchSearch(TypeContainer container) {
+    List<IMember> result = new ArrayList<IMember>();
+    try {
+      BatchSearchRequestor requestor = new BatchSearchRequestor();
+      for (IMethod method : container.getMethods()) {
+        if (isBatchSearchCandidate(method)) {
+          requestor.add(method, createSearchRequestor(method));
+        }
+      }
+      for (IField field : container.getFields()) {
+        if (isBatchSearchCandidate(field)) {
+          requestor.add(field, createSearchRequestor(field));
+        }
+      }
+      List<IMember> members = requestor.getMembers();
+      if (members.size() < 2) {
+        return result;
+      }
+      SearchPattern pattern = null;
+      for (IMember member : members) {
+        SearchPattern memberPattern = SearchPattern.createPattern(member, IJavaSearchConstants.REFERENCES);
+        pattern = pattern == null ? memberPattern : SearchPattern.createOrPattern(pattern, memberPattern);
+      }
+      checkForCancel();
+      IType type = container.getType();
+      if (type != null) {
+        updateMonitorMessage(type, Messages.SearchManager_SearchReferences, "Batch of " + members.size()); //$NON-NLS-1$
+      }
+      // Members have different visibilities: Search in all projects, which could reference them
+      IJavaProject project = members.get(0).getJavaProject();
+      boolean isSearchException = JavaElementUtil.runSearch(project, pattern, requestor);
+      if (isSearchException) {
+        return result; // search members one by one again
+      }
+      for (Entry<IMember, UCDSearchRequestor> entry : requestor.getResults().entrySet()) {
+        batchResults.put(entry.getKey(), entry.getValue());
+        result.add(entry.getKey());
+      }
+    }
+    catch (CoreException e) {
+      Log.warn("Batch search failed, search members one by one: %s", e); //$NON-NLS-1$
+    }
+    return result;
+  }
+
+  /**
+   * @return <code>true</code>, when searchImpl() is probably called for this method
+   */
+  private boolean isBatchSearchCandidate(IMethod method) throws CoreException {
+    IType type = JavaElementUtil.getTypeFor(method, false);
+    return !method.isConstructor() && !type.isAnonymous() && !noRefTypes.contains(type)
+        && !JavaElementUtil.isMethodOfJavaLangObject(method) && !JavaElementUtil.isSerializationMethod(method)
+        && !isCached(method);
+  }
+
+  /**
+   * @return <code>true</code>, when searchImpl() is probably called for this field
+   */
+  private boolean isBatchSearchCandidate(IField field) throws CoreException {
+    IType type = JavaElementUtil.getTypeFor(field, false);
+    return !Flags.isPrivate(field.getFlags()) && !type.isAnonymous() && !noRefTypes.contains(type)
+        && !JavaElementUtil.isSerializationField(field) && !isCached(field);
+  }
+
+  /**
+   * @return <code>true</code>, when the references of the member are found in the reference cache
+   */
+  private boolean isCached(IMember member) {
+    return referenceCache != null && referenceCache.getReferences(member) != null;
+  }
+
   /**
    * Search a member
    */
   private void searchAndHandleException(IMember member) {
     monitor.setActiveSearchElement(member);
     checkForCancel();
-    search++;
+    search.incrementAndGet();
     try {
       if (member instanceof IType) {
         searchSpecific((IType) member);
@@ -197,7 +522,7 @@ public class SearchManager {
   private void updateMonitorMessage(IJavaElement element, String details, String searchInfo) {
     checkForCancel();
     String javaElement = JavaElementUtil.getElementName(element);
-    Object[] bindings = new Object[] { Integer.valueOf(markerCreated), Integer.valueOf(search),
+    Object[] bindings = new Object[] { Integer.valueOf(markerCreated.get()), Integer.valueOf(search.get()),
         Integer.valueOf(searchTotal), searchInfo, javaElement, details };
     String message = NLS.bind(Messages.SearchManager_Monitor, bindings);
     monitor.subTask(message);
@@ -251,7 +576,8 @@ public class SearchManager {
 
     // it is very expensive to call this method!!!
     StopWatch stop = new StopWatch(method);
-    boolean isOverriddenMethod = JavaElementUtil.isOverriddenMethod(method);
+    boolean isOverriddenMethod = referenceIndex == null ? JavaElementUtil.isOverriddenMethod(method)
+        : referenceIndex.isOverriddenMethod(method);
     stop.end("    Calculate if is overridden method"); //$NON-NLS-1$
 
     StopWatch watch = new StopWatch(method);
@@ -260,7 +586,7 @@ public class SearchManager {
       boolean created = finalHandler.createFinalMarker(method, line);
       watch.end("    Calculate method final marker"); //$NON-NLS-1$
       if (created) {
-        markerCreated++;
+        markerCreated.incrementAndGet();
       }
     }
     updateMonitorMessage(method, Messages.SearchManager_SearchReferences, searchInfo);
@@ -284,29 +610,21 @@ public class SearchManager {
     if (JavaElementUtil.isSerializationField(field)) {
       return;
     }
+    boolean isReferenceSearchNeeded = isReferenceSearchNeeded(field);
+    FieldAccessRequestor fieldAccess = isReferenceSearchNeeded ? searchFieldAccesses(field) : null;
     // We create final markers even for classes which have no references
-    boolean created = finalHandler.createFinalMarker(field, line);
+    boolean created = finalHandler.createFinalMarker(field, line, fieldAccess);
     watch.end("    Calculate field final marker"); //$NON-NLS-1$
     if (created) {
-      markerCreated++;
+      markerCreated.incrementAndGet();
     }
-    if (Flags.isPrivate(field.getFlags())) {
+    if (!isReferenceSearchNeeded) {
       return;
     }
-    IType type = JavaElementUtil.getTypeFor(field, false);
-    if (noRefTypes.contains(type)) {
-      return;
-    }
-    if (type.isAnonymous()) {
-      return; // Ignore anonymous classes
-    }
-    if (usedByValueEnumsCache.contains(type)) {
-      return;// See bug 2900561: enum detection, or don't create "unnecessary marker" for enum constants
-    }
     updateMonitorMessage(field, Messages.SearchManager_SearchReferences, searchInfo);
     int found = searchImpl(field, searchInfo, false);
     watch.end("    searchImpl"); //$NON-NLS-1$
-    if (found > 0 && !hasReadAccess(field)) {
+    if (found > 0 && !hasReadAccess(field, fieldAccess)) {
       String message = NLS.bind(Messages.MarkerFactory_MarkerReferenceFieldNeverRead,
           new Object[] { JavaElementUtil.getElementName(field) });
       // found=0 needed here, to create reference marker!
@@ -314,12 +632,88 @@ public class SearchManager {
     }
   }
 
-  /** Search lazy to avoid time consuming: JavaElementUtil.isUsedBySpecialEnumMethods() */
+  /**
+   * @return <code>true</code>, when the references of the field are searched
+   */
+  private boolean isReferenceSearchNeeded(IField field) throws CoreException {
+    if (Flags.isPrivate(field.getFlags())) {
+      return false;
+    }
+    IType type = JavaElementUtil.getTypeFor(field, false);
+    if (noRefTypes.contains(type)) {
+      return false;
+    }
+    if (type.isAnonymous()) {
+      return false; // Ignore anonymous classes
+    }
+    // See bug 2900561: enum detection, or don't create "unnecessary marker" for enum constants
+    return !usedByValueEnumsCache.contains(type);
+  }
+
+  /**
+   * Search references, read accesses and write accesses of a field with a single jdt search.
+   * The references are put to {@link #batchResults}, so they are not searched again.
+   * They are removed, when the search of the type container ends.
+   * @return field accesses, or <code>null</code> when the reference index or cache is used or the search failed
+   */
+  private FieldAccessRequestor searchFieldAccesses(IField field) throws CoreException {
+    if (referenceIndex != null || isCached(field)) {
+      return null;
+    }
+    checkForCancel();
+    // References of batch search members are already known
+    UCDSearchRequestor requestor = batchResults.containsKey(field) ? null : createSearchRequestor(field);
+    FieldAccessRequestor fieldAccess = new FieldAccessRequestor(field, requestor, referenceCache != null);
+    SearchPattern pattern = SearchPattern.createPattern(field, IJavaSearchConstants.REFERENCES);
+    boolean isSearchException = JavaElementUtil.runSearch(field, pattern, fieldAccess);
+    if (isSearchException) {
+      return null; // search references, read accesses and write accesses one by one again
+    }
+    if (requestor != null) {
+      batchResults.put(field, requestor);
+    }
+    if (referenceCache != null) {
+      referenceCache.putCanMakeFinal(field, fieldAccess.canMakeFinal(), fieldAccess.referencingUnits);
+      referenceCache.putReadAccess(field, fieldAccess.hasReadAccess(), fieldAccess.referencingUnits);
+    }
+    return fieldAccess;
+  }
+
+  /**
+   * The enums of the classes to detect are searched in a batch before the search starts.
+   * Other enums are searched lazy to avoid time consuming: JavaElementUtil.isUsedBySpecialEnumMethods()
+   */
   private static final class UsedByValueEnumsCache {
-    private final List<IType> alreadySearched = new ArrayList<IType>();
-    private final List<IType> usedByValueEnums = new ArrayList<IType>();
+    private final Set<IType> alreadySearched = new HashSet<IType>();
+    private final Set<IType> usedByValueEnums = new HashSet<IType>();
+
+    /**
+     * Search all enums containing fields to detect with a single search
+     */
+    synchronized void searchEnums(Set<TypeContainer> typeContainers) {
+      List<IType> enumTypes = new ArrayList<IType>();
+      try {
+        for (TypeContainer container : typeContainers) {
+          IType type = container.getType();
+          if (type != null && !container.getFields().isEmpty() && type.isEnum()) {
+            enumTypes.add(type);
+          }
+        }
+        if (enumTypes.isEmpty()) {
+          return;
+        }
+        StopWatch watch = new StopWatch();
+        usedByValueEnums.addAll(JavaElementUtil.getEnumsUsedBySpecialEnumMethods(enumTypes));
+        alreadySearched.addAll(enumTypes);
+        Log.info("Enums used by values() or valueOf(): %s of %s. %s", Integer.valueOf(usedByValueEnums.size()), //$NON-NLS-1$
+            Integer.valueOf(enumTypes.size()), watch.end("Search enums")); //$NON-NLS-1$
+      }
+      catch (CoreException e) {
+        Log.warn("Enum search failed, search enums one by one: %s", e); //$NON-NLS-1$
+      }
+    }
 
-    boolean contains(IType enumType) throws CoreException {
+    synchronized boolean contains(IType enumType) throws CoreException {
       if (enumType.isEnum() && !alreadySearched.contains(enumType)) {
         alreadySearched.add(enumType);
         if (JavaElementUtil.isUsedBySpecialEnumMethods(enumType)) {
@@ -337,20 +731,43 @@ public class SearchManager {
   }
 
   private void checkForCancel() {
+    if (stopSearch) {
+      throw new OperationCanceledException("Search stopped"); //$NON-NLS-1$
+    }
     monitor.throwIfIsCanceled();
   }
 
   public int getMarkerCreated() {
-    return markerCreated;
+    return markerCreated.get();
   }
 
   /**
+   * @param fieldAccess result of a search for all field accesses, or <code>null</code> to search read accesses
    * @return <code>true</code>, when a field has read access
    */
-  private static boolean hasReadAccess(IField field) throws CoreException {
-    SearchPattern pattern = SearchPattern.createPattern(field, IJavaSearchConstants.READ_ACCESSES);
+  private boolean hasReadAccess(IField field, FieldAccessRequestor fieldAccess) throws CoreException {
+    if (fieldAccess != null) {
+      return fieldAccess.hasReadAccess();
+    }
     CountSearchRequestor requestor = new CountSearchRequestor();
-    JavaElementUtil.runSearch(pattern, requestor);
+    if (referenceIndex != null) {
+      referenceIndex.search(field, IJavaSearchConstants.READ_ACCESSES, requestor);
+      return requestor.isFound();
+    }
+    SearchPattern pattern = SearchPattern.createPattern(field, IJavaSearchConstants.READ_ACCESSES);
+    if (referenceCache == null) {
+      JavaElementUtil.runSearch(field, pattern, requestor);
+      return requestor.isFound();
+    }
+    Boolean cachedReadAccess = referenceCache.getReadAccess(field);
+    if (cachedReadAccess != null) {
+      return cachedReadAccess.booleanValue();
+    }
+    ReferenceCache.RecordingRequestor recordingRequestor = new ReferenceCache.RecordingRequestor(requestor);
+    boolean isSearchException = JavaElementUtil.runSearch(field, pattern, recordingRequestor);
+    if (!isSearchException) {
+      referenceCache.putReadAccess(field, requestor.isFound(), recordingRequestor.referencingUnits);
+    }
     return requestor.isFound();
   }
 
@@ -363,8 +780,8 @@ public class SearchManager {
     if (line == LineManger.LINE_NOT_FOUND) {
       return 0;
     }
-    VisibilityHandler visibilityHandler = new VisibilityHandler(markerFactory, member);
-    UCDSearchRequestor foundResult = searchJavaImpl(member, visibilityHandler);
+    UCDSearchRequestor foundResult = searchJavaImpl(member);
+    VisibilityHandler visibilityHandler = foundResult.visibilityHandler;
     int found = foundResult.found;
     int foundInTextFiles = 0;
     boolean isTestOnlyMatches = found > 0 && (found == foundResult.foundTest);
@@ -376,7 +793,7 @@ public class SearchManager {
     if (isTestOnlyMatches && foundInTextFiles == 0) {
       created = markerFactory.createReferenceMarkerTestOnly(member, line);
       if (created) {
-        markerCreated++;
+        markerCreated.incrementAndGet();
       }
     }
     found += foundInTextFiles;
@@ -384,7 +801,7 @@ public class SearchManager {
     if (!isOverriddenMethod) {
       created = visibilityHandler.createMarker(line, found);
       if (created) {
-        markerCreated++;
+        markerCreated.incrementAndGet();
       }
     }
     Object[] bindings = new Object[] { searchInfo, JavaElementUtil.getElementName(member), Integer.valueOf(found) };
@@ -402,12 +819,12 @@ public class SearchManager {
         return found;
       }
     }
-    if (found > Prefs.getWarnLimit()) {
+    if (found > config.getWarnLimit()) {
       return found;
     }
     // Fix for BUG 2808853: Don't create "0 references marker" for classes with main methods
     if (member instanceof IType && JavaElementUtil.hasMainMethod((IType) member)) {
-      if (Prefs.isFilterClassWithMainMethod()) {
+      if (config.isFilterClassWithMainMethod()) {
         Log.info("No marker, because class has main() method: %s", JavaElementUtil.getElementName(member)); //$NON-NLS-1$
         return found;
       }
@@ -417,7 +834,7 @@ public class SearchManager {
       created = markerFactory.createReferenceMarker(member, markerMessage, line, found);
     }
     if (created) {
-      markerCreated++;
+      markerCreated.incrementAndGet();
     }
     return found;
   }
@@ -425,15 +842,50 @@ public class SearchManager {
   /**
    * Search for java references
    */
-  private UCDSearchRequestor searchJavaImpl(IMember member, VisibilityHandler visibilityHandler) throws CoreException {
+  private UCDSearchRequestor searchJavaImpl(IMember member) throws CoreException {
     checkForCancel();
+    UCDSearchRequestor batchResult = batchResults.remove(member);
+    if (batchResult != null) {
+      putReferencesToCache(batchResult);
+      return batchResult;
+    }
+    UCDSearchRequestor requestor = createSearchRequestor(member);
+    if (referenceIndex != null) {
+      referenceIndex.search(member, IJavaSearchConstants.REFERENCES, requestor);
+      return requestor;
+    }
+    ReferenceCache.CacheEntry cached = referenceCache == null ? null : referenceCache.getReferences(member);
+    if (cached != null) {
+      requestor.found = cached.found;
+      requestor.foundTest = cached.foundTest;
+      requestor.visibilityHandler.restoreMaxVisibilityFound(cached.visibility);
+      return requestor;
+    }
     SearchPattern pattern = SearchPattern.createPattern(member, IJavaSearchConstants.REFERENCES);
-    UCDSearchRequestor requestor = new UCDSearchRequestor(member, visibilityHandler, lineManger);
-    boolean isSearchException = JavaElementUtil.runSearch(pattern, requestor);
+    boolean isSearchException = JavaElementUtil.runSearch(member, pattern, requestor);
     // Let's be pessimistic and handle an Exception as "reference found"!
     if (isSearchException && requestor.found == 0) {
       requestor.found = 1;
     }
+    if (!isSearchException) {
+      putReferencesToCache(requestor);
+    }
+    return requestor;
+  }
+
+  private void putReferencesToCache(UCDSearchRequestor requestor) {
+    if (referenceCache != null) {
+      referenceCache.putReferences(requestor.searchStart, requestor.found, requestor.foundTest,
+          requestor.visibilityHandler.getMaxVisibilityFoundValue(), requestor.referencingUnits);
+    }
+  }
+
+  private UCDSearchRequestor createSearchRequestor(IMember member) throws JavaModelException {
+    VisibilityHandler visibilityHandler = new VisibilityHandler(config, markerFactory, member);
+    UCDSearchRequestor requestor = new UCDSearchRequestor(config, member, visibilityHandler, lineManger);
+    if (referenceCache != null) {
+      requestor.referencingUnits = new HashSet<String>();
+    }
     return requestor;
   }
 
@@ -442,54 +894,29 @@ public class SearchManager {
    */
   private int searchTextImpl(IMember member, VisibilityHandler visibilityHandler) throws CoreException {
     checkForCancel();
-    if (!Prefs.isUCDetectionInLiterals() || !(member instanceof IType)) {
-      return 0;
-    }
-    // Only search if visibility is public
-    if (!Flags.isPublic(member.getFlags())) {
+    if (!(member instanceof IType)) {
       return 0;
     }
     IType type = (IType) member;
-    // Classes declared in plugin.xml for example must be public!
-    // Search class names in text file now works also for nested classes: com.example.Foo$NestedClass
-    if (type.isAnonymous() || type.isLocal() || !Flags.isPublic(type.getFlags())) {
+    List<String> searchStrings = getLiteralSearchStrings(type);
+    if (searchStrings.isEmpty()) {
       return 0;
     }
     String searchInfo = JavaElementUtil.getMemberTypeString(member);
 
     updateMonitorMessage(type, Messages.SearchManager_SearchClassNameAsLiteral, searchInfo);
-    FileTextSearchScope scope = FileTextSearchScope.newWorkspaceScope(Prefs.getFilePatternLiteralSearch(), /*exclude bin dir */
+    LiteralSearch literal = getLiteralSearch();
+    FileTextSearchScope scope = FileTextSearchScope.newWorkspaceScope(config.getFilePatternLiteralSearch(), /*exclude bin dir */
         false);
-    List<String> searchStrings = new ArrayList<String>();
-    if (Prefs.isUCDetectionInLiteralsFullClassName()) {
-      String fullClassName = type.getFullyQualifiedName();
-      searchStrings.add(fullClassName);
-      Log.debug("Text search of full classname '%s'", fullClassName);// //$NON-NLS-1$
-    }
-    if (Prefs.isUCDetectionInLiteralsSimpleClassName()) {
-      String simpleClassName = type.getElementName();
-      searchStrings.add(simpleClassName);
-      Log.debug("Text search of simple classname '%s'", simpleClassName);// //$NON-NLS-1$
-    }
     int requestorFound = 0;
     for (String searchString : searchStrings) {
-      if (searchString == null || searchString.length() == 0) {
-        continue;
+      Log.debug("Text search of classname '%s'", searchString);// //$NON-NLS-1$
+      UCDFileSearchRequestor requestor = new UCDFileSearchRequestor(config, searchString, visibilityHandler);
+      if (literal != null && literal.isSearched(searchString)) {
+        requestor.acceptHits(literal.getHits(searchString));
       }
-      Pattern searchPattern = Pattern.compile(Pattern.quote(searchString));
-      UCDFileSearchRequestor requestor = new UCDFileSearchRequestor(type, searchString, visibilityHandler);
-      try {
-        // 2011-06-28: When next line fails in headless mode,
-        // restore class from svn: org.ucdetector.search.UCDTextSearchVisitor
-        // TextSearchEngine.create().search(scope, requestor, searchPattern, null);
-        // 2012-02-26: Used "createDefault()" to avoid Exception in headless mode
-        TextSearchEngine.createDefault().search(scope, requestor, searchPattern, null);
-      }
-      catch (OperationCanceledException e) {
-        Log.info("Text search canceled"); //$NON-NLS-1$
-      }
-      catch (OutOfMemoryError e) {
-        UCDetectorPlugin.handleOutOfMemoryError(e);
+      else {
+        searchText(scope, requestor);
       }
       // bug fix [ 2373808 ]: Classes found by text search should have no markers
       if (requestor.matchedFiles.size() > 0) {
@@ -503,6 +930,82 @@ public class SearchManager {
     return requestorFound;
   }
 
+  /**
+   * Search a class name in all text files using the eclipse text search
+   */
+  private static void searchText(FileTextSearchScope scope, UCDFileSearchRequestor requestor) {
+    Pattern searchPattern = Pattern.compile(Pattern.quote(requestor.searchString));
+    try {
+      // 2011-06-28: When next line fails in headless mode,
+      // restore class from svn: org.ucdetector.search.UCDTextSearchVisitor
+      // TextSearchEngine.create().search(scope, requestor, searchPattern, null);
+      // 2012-02-26: Used "createDefault()" to avoid Exception in headless mode
+      TextSearchEngine.createDefault().search(scope, requestor, searchPattern, null);
+    }
+    catch (OperationCanceledException e) {
+      Log.info("Text search canceled"); //$NON-NLS-1$
+    }
+    catch (OutOfMemoryError e) {
+      UCDetectorPlugin.handleOutOfMemoryError(e);
+    }
+  }
+
+  /**
+   * @return full class name and/or simple class name to search in text files.
+   *         Empty, when the class name should not be searched
+   */
+  private List<String> getLiteralSearchStrings(IType type) throws JavaModelException {
+    List<String> searchStrings = new ArrayList<String>();
+    if (!config.isUCDetectionInLiterals()) {
+      return searchStrings;
+    }
+    // Classes declared in plugin.xml for example must be public!
+    // Search class names in text file now works also for nested classes: com.example.Foo$NestedClass
+    if (type.isAnonymous() || type.isLocal() || !Flags.isPublic(type.getFlags())) {
+      return searchStrings;
+    }
+    if (config.isUCDetectionInLiteralsFullClassName()) {
+      searchStrings.add(type.getFullyQualifiedName());
+    }
+    if (config.isUCDetectionInLiteralsSimpleClassName()) {
+      searchStrings.add(type.getElementName());
+    }
+    searchStrings.removeAll(Arrays.asList(null, "")); //$NON-NLS-1$
+    return searchStrings;
+  }
+
+  /**
+   * Search the class names of all classes to detect in one pass, when the first class name is searched
+   * @return <code>null</code>, if the literal search failed. Then each class name is searched one by one
+   */
+  private synchronized LiteralSearch getLiteralSearch() {
+    if (literalSearch == null && !isLiteralSearchFailed) {
+      // class name -> handle identifiers of the classes, to find class names of deleted classes in the literal cache
+      Map<String, Set<String>> searchStrings = new LinkedHashMap<String, Set<String>>();
+      try {
+        for (TypeContainer container : typeContainers) {
+          IType type = container.getType();
+          if (type != null) {
+            for (String searchString : getLiteralSearchStrings(type)) {
+              Set<String> types = searchStrings.get(searchString);
+              if (types == null) {
+                types = new LinkedHashSet<String>();
+                searchStrings.put(searchString, types);
+              }
+              types.add(type.getHandleIdentifier());
+            }
+          }
+        }
+        literalSearch = LiteralSearch.build(searchStrings, config, monitor);
+      }
+      catch (CoreException e) {
+        Log.warn("Literal search failed, search class names one by one: %s", e); //$NON-NLS-1$
+        isLiteralSearchFailed = true;
+      }
+    }
+    return literalSearch;
+  }
+
   /**
    * text search in files
    */
@@ -510,15 +1013,15 @@ public class SearchManager {
     final List<String> matchedFiles = new ArrayList<String>();
     final VisibilityHandler visibilityHandler;
     final String searchString;
-    private final IType startType;
+    private final DetectionConfig config;
 
     @Override
     public String toString() {
       return String.format("'%s' found=%s", searchString, Integer.valueOf(matchedFiles.size())); //$NON-NLS-1$
     }
 
-    UCDFileSearchRequestor(IType startType, String searchString, VisibilityHandler visibilityHandler) {
-      this.startType = startType;
+    UCDFileSearchRequestor(DetectionConfig config, String searchString, VisibilityHandler visibilityHandler) {
+      this.config = config;
       this.searchString = searchString;
       this.visibilityHandler = visibilityHandler;
     }
@@ -547,10 +1050,30 @@ public class SearchManager {
       }
       IJavaElement matchJavaElement = JavaCore.create(matchAccess.getFile());
       visibilityHandler.checkVisibility(matchJavaElement);
-      checkCancelSearch(startType, matchedFiles.size(), -1, visibilityHandler);
+      checkCancelSearch(config, matchedFiles.size(), -1, visibilityHandler);
       return true;
     }
 
+    /**
+     * Same as {@link #acceptPatternMatch(TextSearchMatchAccess)} for matches found by the {@link LiteralSearch}
+     */
+    void acceptHits(List<LiteralSearch.FileHits> hits) {
+      try {
+        for (LiteralSearch.FileHits hit : hits) {
+          IJavaElement matchJavaElement = JavaCore.create(hit.file);
+          visibilityHandler.checkVisibility(matchJavaElement);
+          checkCancelSearch(config, matchedFiles.size(), -1, visibilityHandler);
+          for (int i = 0; i < hit.classNameMatches; i++) {
+            matchedFiles.add(hit.file.getFullPath().toString());
+            checkCancelSearch(config, matchedFiles.size(), -1, visibilityHandler);
+          }
+        }
+      }
+      catch (OperationCanceledException e) {
+        Log.info("Text search canceled"); //$NON-NLS-1$
+      }
+    }
+
     private static char getCharBefore(TextSearchMatchAccess match) {
       int offset = match.getMatchOffset();
       return (offset == 0) ? '\n' : match.getFileContentChar(offset - 1);
@@ -564,14 +1087,161 @@ public class SearchManager {
     }
   }
 
+  /**
+   * Receives matches of a batch search, and sends them to the requestor of the referenced member.<br>
+   * The referenced member is found by its name at the position of the match.
+   * When a match can't be assigned to a member, the results for this kind of members (methods or fields)
+   * are thrown away, and the members are searched one by one.
+   */
+  private static final class BatchSearchRequestor extends SearchRequestor {
+    private final Map<String, UCDSearchRequestor> methods = new HashMap<String, UCDSearchRequestor>();
+    private final Map<String, UCDSearchRequestor> fields = new HashMap<String, UCDSearchRequestor>();
+    /** Overloaded methods, which could not be distinguished by name */
+    private final Set<String> duplicateNames = new HashSet<String>();
+    /** requestors, which don't need more matches */
+    private final Set<UCDSearchRequestor> finished = new HashSet<UCDSearchRequestor>();
+    private boolean isMethodMatchUnknown = false;
+    private boolean isFieldMatchUnknown = false;
+
+    void add(IMember member, UCDSearchRequestor requestor) {
+      Map<String, UCDSearchRequestor> map = member instanceof IField ? fields : methods;
+      String name = member.getElementName();
+      if (duplicateNames.contains(name)) {
+        return;
+      }
+      if (map.containsKey(name)) {
+        map.remove(name);
+        duplicateNames.add(name);
+        return;
+      }
+      map.put(name, requestor);
+    }
+
+    List<IMember> getMembers() {
+      List<IMember> members = new ArrayList<IMember>();
+      for (UCDSearchRequestor requestor : methods.values()) {
+        members.add(requestor.searchStart);
+      }
+      for (UCDSearchRequestor requestor : fields.values()) {
+        members.add(requestor.searchStart);
+      }
+      return members;
+    }
+
+    /**
+     * @return member to requestor containing the search results
+     */
+    Map<IMember, UCDSearchRequestor> getResults() {
+      Map<IMember, UCDSearchRequestor> results = new HashMap<IMember, UCDSearchRequestor>();
+      if (!isMethodMatchUnknown) {
+        for (UCDSearchRequestor requestor : methods.values()) {
+          results.put(requestor.searchStart, requestor);
+        }
+      }
+      if (!isFieldMatchUnknown) {
+        for (UCDSearchRequestor requestor : fields.values()) {
+          results.put(requestor.searchStart, requestor);
+        }
+      }
+      return results;
+    }
+
+    @Override
+    public void acceptSearchMatch(SearchMatch match) {
+      if (defaultIgnoreMatch(match) == null) {
+        return; // ignored by all requestors
+      }
+      boolean isFieldMatch = match instanceof FieldReferenceMatch;
+      if (!isFieldMatch && !(match instanceof MethodReferenceMatch)) {
+        isMethodMatchUnknown = true;
+        isFieldMatchUnknown = true;
+        return;
+      }
+      Map<String, UCDSearchRequestor> map = isFieldMatch ? fields : methods;
+      UCDSearchRequestor requestor = map.size() == 1 ? map.values().iterator().next() //
+          : map.get(getReferencedName(match));
+      if (requestor == null) {
+        if (isFieldMatch) {
+          isFieldMatchUnknown = true;
+        }
+        else {
+          isMethodMatchUnknown = true;
+        }
+        return;
+      }
+      if (finished.contains(requestor)) {
+        return;
+      }
+      try {
+        requestor.acceptSearchMatch(match);
+      }
+      catch (OperationCanceledException e) {
+        finished.add(requestor);
+        if (finished.size() == methods.size() + fields.size()) {
+          throw e; // All requestors are finished
+        }
+      }
+    }
+
+    /**
+     * @return name of the method or field at the position of the match. Examples:
+     * <ul>
+     * <li><code>foo(bar())</code> returns <code>foo</code></li>
+     * <li><code>this.field</code> returns <code>field</code></li>
+     * <li><code>import static org.example.Foo.bar</code> returns <code>bar</code></li>
+     * </ul>
+     */
+    private static String getReferencedName(SearchMatch match) {
+      try {
+        IJavaElement element = (IJavaElement) match.getElement();
+        IOpenable openable = element.getOpenable();
+        IBuffer buffer = openable == null ? null : openable.getBuffer();
+        if (buffer == null) {
+          return null;
+        }
+        List<String> names = new ArrayList<String>();
+        int end = Math.min(match.getOffset() + match.getLength(), buffer.getLength());
+        int pos = match.getOffset();
+        while (pos < end && Character.isJavaIdentifierStart(buffer.getChar(pos))) {
+          int start = pos;
+          while (pos < end && Character.isJavaIdentifierPart(buffer.getChar(pos))) {
+            pos++;
+          }
+          names.add(buffer.getText(start, pos - start));
+          while (pos < end && Character.isWhitespace(buffer.getChar(pos))) {
+            pos++;
+          }
+          if (pos >= end || buffer.getChar(pos) != '.') {
+            break;
+          }
+          pos++;
+          while (pos < end && Character.isWhitespace(buffer.getChar(pos))) {
+            pos++;
+          }
+        }
+        names.removeAll(Arrays.asList("this", "super")); //$NON-NLS-1$ //$NON-NLS-2$
+        if (names.isEmpty()) {
+          return null;
+        }
+        return element instanceof IImportDeclaration ? names.get(names.size() - 1) : names.get(0);
+      }
+      catch (JavaModelException e) {
+        return null;
+      }
+    }
+  }
+
   /**
    * search java references
    */
   private static final class UCDSearchRequestor extends SearchRequestor {
     int found = 0;
     int foundTest = 0;
+    /** java files containing matches. Only used, when the reference cache is switched on */
+    Set<String> referencingUnits;
     private final IMember searchStart;
     private final VisibilityHandler visibilityHandler;
+    private final DetectionConfig config;
     @SuppressWarnings("unused")
     private final LineManger lineManager;
 
@@ -581,7 +1251,9 @@ public class SearchManager {
           Integer.valueOf(foundTest));
     }
 
-    UCDSearchRequestor(IMember searchStart, VisibilityHandler visibilityHandler, LineManger lineManager) {
+    UCDSearchRequestor(DetectionConfig config, IMember searchStart, VisibilityHandler visibilityHandler,
+        LineManger lineManager) {
+      this.config = config;
       this.searchStart = searchStart;
       this.visibilityHandler = visibilityHandler;
       this.lineManager = lineManager;
@@ -589,17 +1261,20 @@ public class SearchManager {
 
     @Override
     public void acceptSearchMatch(SearchMatch match) {
+      if (referencingUnits != null) {
+        ReferenceCache.addReferencingUnit(referencingUnits, match);
+      }
       if (ignoreMatch(match)) {
         return;
       }
       this.found++;
       IJavaElement matchJavaElement = (IJavaElement) match.getElement();
       //      checkUnusedBoolean(match, matchJavaElement);
-      if (Prefs.isDetectTestOnly() && JavaElementUtil.isTestCode(matchJavaElement)) {
+      if (config.isDetectTestOnly() && JavaElementUtil.isTestCode(matchJavaElement)) {
         foundTest++;
       }
       visibilityHandler.checkVisibility(matchJavaElement);
-      checkCancelSearch(searchStart, found, foundTest, visibilityHandler);
+      checkCancelSearch(config, found, foundTest, visibilityHandler);
       //      parseMatch(match, matchJavaElement);
     }
 
@@ -713,15 +1388,15 @@ public class SearchManager {
    * cancel search by throwing a {@link OperationCanceledException}
    * when necessary
    */
-  private static void checkCancelSearch(IMember startElement, int found, int foundTest,
+  private static void checkCancelSearch(DetectionConfig config, int found, int foundTest,
       VisibilityHandler visibilityHandler) {
-    if (Prefs.isDetectTestOnly() && (found == foundTest)) {
+    if (config.isDetectTestOnly() && (found == foundTest)) {
       return; // Continue searching, because all matches are matches in test code
     }
-    if (found <= Prefs.getWarnLimit()) {
+    if (found <= config.getWarnLimit()) {
       return; // Continue searching to reach warn limit
     }
-    if (Prefs.isVisibilityCheck(startElement) && !visibilityHandler.isMaxVisibilityFoundPublic()) {
+    if (visibilityHandler.isVisibilityCheck() && !visibilityHandler.isMaxVisibilityFoundPublic()) {
       return; // Continue searching to find a match in another package
     }
     //    if (Log.isDebug()) {
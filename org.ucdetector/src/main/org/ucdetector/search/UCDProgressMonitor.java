@@ -29,9 +29,9 @@ public class UCDProgressMonitor implements IProgressMonitor {
   private final IProgressMonitor delegate;
   private String lastWork;
   private static final DecimalFormat FORMAT_DOUBLE = new DecimalFormat("0.0000"); //$NON-NLS-1$
-  private IMember activeSearchElement = null;
+  private volatile IMember activeSearchElement = null;
   private boolean isFinished = false;
-  private boolean isSleep = false;
+  private volatile boolean isSleep = false;
   private final Object lock = new Object();
 
   public boolean isFinished() {
@@ -87,7 +87,7 @@ public class UCDProgressMonitor implements IProgressMonitor {
     this.isSleep = isSleep;
     if (!isSleep) {
       synchronized (lock) {
-        lock.notify();
+        lock.notifyAll(); // wake up all search threads
       }
     }
   }
@@ -100,7 +100,9 @@ public class UCDProgressMonitor implements IProgressMonitor {
     if (isSleep) {
       try {
         synchronized (lock) {
-          lock.wait();
+          while (isSleep) {
+            lock.wait();
+          }
         }
       }
       catch (InterruptedException e) {
@@ -147,4 +149,4 @@ public class UCDProgressMonitor implements IProgressMonitor {
   public IMember getActiveSearchElement() {
     return activeSearchElement;
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
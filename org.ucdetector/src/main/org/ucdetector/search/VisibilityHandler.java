@@ -16,7 +16,7 @@ import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaModelException;
-import org.ucdetector.preferences.Prefs;
+import org.ucdetector.preferences.DetectionConfig;
 import org.ucdetector.util.JavaElementUtil;
 import org.ucdetector.util.MarkerFactory;
 
@@ -43,11 +43,17 @@ class VisibilityHandler {
   //
   private final IMember startElement;
   private final MarkerFactory markerFactory;
+  private final DetectionConfig config;
+  /** Checked for each match, so it is calculated once */
+  private final boolean isVisibilityCheck;
 
-  VisibilityHandler(MarkerFactory markerFactory, IMember startElement) throws JavaModelException {
+  VisibilityHandler(DetectionConfig config, MarkerFactory markerFactory, IMember startElement)
+      throws JavaModelException {
+    this.config = config;
     this.markerFactory = markerFactory;
     this.startElement = startElement;
     visibilityStart = calculateVisibilityStart(startElement);
+    isVisibilityCheck = config.isVisibilityCheck(startElement);
   }
 
   private static Visibility calculateVisibilityStart(IMember startElementInput) throws JavaModelException {
@@ -83,7 +89,7 @@ class VisibilityHandler {
    * @throws JavaModelException
    */
   void checkVisibility(IJavaElement foundElement) {
-    if (!Prefs.isVisibilityCheck(startElement)) {
+    if (!isVisibilityCheck) {
       return;
     }
     IType startRootType = JavaElementUtil.getRootTypeFor(startElement);
@@ -97,7 +103,7 @@ class VisibilityHandler {
     // [ 2743908 ] Methods only called from inner class could be private
     if (startRootType.equals(foundRootType)) {
       // [ 2804064 ] Access to enclosing type - make 2743908 configurable
-      setMaxVisibilityFound(Prefs.isIgnoreSyntheticAccessEmulationWarning() ? Visibility.PRIVATE : Visibility.PROTECTED);
+      setMaxVisibilityFound(config.isIgnoreSyntheticAccessEmulationWarning() ? Visibility.PRIVATE : Visibility.PROTECTED);
       return;
     }
     IPackageFragment startPackage = JavaElementUtil.getPackageFor(startElement);
@@ -230,9 +236,9 @@ class VisibilityHandler {
         return false;
       case PROTECTED:
       case DEFAULT:
-        return Prefs.isVisibilityProtectedCheck(member);
+        return config.isVisibilityProtectedCheck(member);
       case PRIVATE:
-        return Prefs.isVisibilityPrivateCheck(member);
+        return config.isVisibilityPrivateCheck(member);
       default:
         return false;
     }
@@ -242,6 +248,30 @@ class VisibilityHandler {
     return visibilityMaxFound == Visibility.PUBLIC;
   }
 
+  /**
+   * @return <code>true</code> when we want to check to reduce visibility of the start element
+   */
+  boolean isVisibilityCheck() {
+    return isVisibilityCheck;
+  }
+
+  /** @return value of the maximum visibility found, which is stored in the {@link ReferenceCache} */
+  int getMaxVisibilityFoundValue() {
+    return visibilityMaxFound.value;
+  }
+
+  /**
+   * Restore the maximum visibility found by a search of a former UCDetector run
+   * @param value see {@link #getMaxVisibilityFoundValue()}
+   */
+  void restoreMaxVisibilityFound(int value) {
+    for (Visibility visibility : Visibility.values()) {
+      if (visibility.value == value) {
+        setMaxVisibilityFound(visibility);
+      }
+    }
+  }
+
   @Override
   public String toString() {
     return String.format("%s [visibilityStart=%s, visibilityMaxFound=%s]", getClass().getSimpleName(), visibilityStart, //$NON-NLS-1$
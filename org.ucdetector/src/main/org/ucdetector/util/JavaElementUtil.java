@@ -8,15 +8,22 @@
 package org.ucdetector.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.IAnnotation;
@@ -38,6 +45,7 @@ import org.eclipse.jdt.core.Signature;
 import org.eclipse.jdt.core.search.IJavaSearchConstants;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
 import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
 import org.eclipse.jdt.core.search.SearchParticipant;
 import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.SearchRequestor;
@@ -60,7 +68,10 @@ import org.ucdetector.search.CountSearchRequestor;
 @SuppressWarnings("nls")
 public final class JavaElementUtil {
   private static final String UNKNOWN_FIELD = "field?";
-  private static final NullProgressMonitor NULL_MONITOR = new NullProgressMonitor();
+  /** project, package or type handle -> search scope. See {@link #runSearch(IJavaElement, SearchPattern, SearchRequestor)} */
+  private static final Map<String, IJavaSearchScope> SCOPES = new ConcurrentHashMap<String, IJavaSearchScope>();
+  /** project name -> names of projects, which have the project in their classpath */
+  private static Map<String, Set<String>> requiringProjects = null;
 
   private JavaElementUtil() {
     //
@@ -295,6 +306,29 @@ public final class JavaElementUtil {
     return null;
   }
 
+  /**
+   * @param project java project
+   * @return all compilation units in the source folders of the project.
+   * Source folders of other projects (linked in the classpath) are ignored
+   * @throws JavaModelException if the project does not exist
+   */
+  public static List<ICompilationUnit> getSourceCompilationUnits(IJavaProject project) throws JavaModelException {
+    List<ICompilationUnit> units = new ArrayList<ICompilationUnit>();
+    for (IPackageFragmentRoot root : project.getPackageFragmentRoots()) {
+      if (root.getKind() != IPackageFragmentRoot.K_SOURCE || !project.equals(root.getJavaProject())) {
+        continue;
+      }
+      for (IJavaElement child : root.getChildren()) {
+        if (child instanceof IPackageFragment) {
+          for (ICompilationUnit unit : ((IPackageFragment) child).getCompilationUnits()) {
+            units.add(unit);
+          }
+        }
+      }
+    }
+    return units;
+  }
+
   // -------------------------------------------------------------------------
   // SPECIAL METHODS
   // -------------------------------------------------------------------------
@@ -407,27 +441,101 @@ public final class JavaElementUtil {
    * @throws CoreException when there are search problems
    */
   public static boolean isUsedBySpecialEnumMethods(IType enumType) throws CoreException {
-    if (enumType.isEnum()) {
-      // We need '.' as class name separator for search!
-      String typeName = enumType.getFullyQualifiedName('.');
-      String[] stringPatterns = new String[] { //
-          typeName + ".values()", //
-          typeName + ".valueOf(String)"// 2016-04-15: String instead of java.lang.String fixed broken search
-      };
-      for (String stringPattern : stringPatterns) {
-        SearchPattern pattern = SearchPattern.createPattern(stringPattern, IJavaSearchConstants.METHOD,
-            IJavaSearchConstants.REFERENCES, SearchPattern.R_ERASURE_MATCH);
-        CountSearchRequestor requestor = new CountSearchRequestor();
-        //profile:6000
-        runSearch(pattern, requestor);
-        if (requestor.isFound()) {
-          return true;
-        }
+    for (SearchPattern pattern : createSpecialEnumMethodPatterns(enumType)) {
+      CountSearchRequestor requestor = new CountSearchRequestor();
+      //profile:6000
+      runSearch(enumType, pattern, requestor);
+      if (requestor.isFound()) {
+        return true;
       }
     }
     return false;
   }
 
+  /**
+   * Same as {@link #isUsedBySpecialEnumMethods(IType)} for many enums: A single search for all enums finds
+   * the java files calling <code>values()</code> or <code>valueOf()</code> of any enum.
+   * When more than one enum is searched, each enum is searched again, but only in these java files
+   * @param types enums to check usage. Other types are ignored
+   * @return enums, which are used by values() or valueOf()
+   * @throws CoreException when there are search problems
+   */
+  public static Set<IType> getEnumsUsedBySpecialEnumMethods(Collection<IType> types) throws CoreException {
+    Set<IType> result = new HashSet<IType>();
+    List<IType> enumTypes = new ArrayList<IType>();
+    SearchPattern pattern = null;
+    for (IType type : types) {
+      for (SearchPattern enumPattern : createSpecialEnumMethodPatterns(type)) {
+        pattern = pattern == null ? enumPattern : SearchPattern.createOrPattern(pattern, enumPattern);
+      }
+      if (type.isEnum()) {
+        enumTypes.add(type);
+      }
+    }
+    if (pattern == null) {
+      return result;
+    }
+    final Set<IJavaElement> matchUnits = new LinkedHashSet<IJavaElement>();
+    SearchRequestor requestor = new SearchRequestor() {
+      @Override
+      public void acceptSearchMatch(SearchMatch match) {
+        if (match.getElement() instanceof IJavaElement) {
+          IJavaElement element = (IJavaElement) match.getElement();
+          IJavaElement unit = element.getAncestor(IJavaElement.COMPILATION_UNIT);
+          matchUnits.add(unit == null ? element : unit);
+        }
+      }
+    };
+    boolean isSearchException = runSearch(pattern, requestor);
+    if (isSearchException) {
+      for (IType enumType : enumTypes) {
+        if (isUsedBySpecialEnumMethods(enumType)) {
+          result.add(enumType);
+        }
+      }
+      return result;
+    }
+    if (matchUnits.isEmpty()) {
+      return result;
+    }
+    if (enumTypes.size() == 1) {
+      result.addAll(enumTypes);
+      return result;
+    }
+    IJavaSearchScope matchScope = SearchEngine.createJavaSearchScope(matchUnits.toArray(new IJavaElement[matchUnits
+        .size()]));
+    for (IType enumType : enumTypes) {
+      SearchPattern[] patterns = createSpecialEnumMethodPatterns(enumType);
+      CountSearchRequestor countRequestor = new CountSearchRequestor();
+      runSearch(SearchPattern.createOrPattern(patterns[0], patterns[1]), countRequestor, matchScope);
+      if (countRequestor.isFound()) {
+        result.add(enumType);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return search patterns for <code>values()</code> and <code>valueOf(String)</code>, empty for other types
+   */
+  private static SearchPattern[] createSpecialEnumMethodPatterns(IType enumType) throws JavaModelException {
+    if (!enumType.isEnum()) {
+      return new SearchPattern[0];
+    }
+    // We need '.' as class name separator for search!
+    String typeName = enumType.getFullyQualifiedName('.');
+    String[] stringPatterns = new String[] { //
+        typeName + ".values()", //
+        typeName + ".valueOf(String)"// 2016-04-15: String instead of java.lang.String fixed broken search
+    };
+    SearchPattern[] patterns = new SearchPattern[stringPatterns.length];
+    for (int i = 0; i < stringPatterns.length; i++) {
+      patterns[i] = SearchPattern.createPattern(stringPatterns[i], IJavaSearchConstants.METHOD,
+          IJavaSearchConstants.REFERENCES, SearchPattern.R_ERASURE_MATCH);
+    }
+    return patterns;
+  }
+
   // -------------------------------------------------------------------------
   // SPECIAL FIELDS
   // -------------------------------------------------------------------------
@@ -742,7 +850,7 @@ public final class JavaElementUtil {
    * @see org.eclipse.jdt.ui.actions.FindDeclarationsAction
    * @see "http://help.eclipse.org/stable/index.jsp?topic=/org.eclipse.jdt.doc.isv/guide/jdt_api_search.htm"
    * @return <code>true</code> if a method is overridden<br> or if it has a @Override annotation
-   * it is very expensive to call this method!!!
+   * Signatures are looked up in the {@link TypeHierarchyCache}, a search runs only for generic methods
    * @throws CoreException if this element does not exist or if an exception occurs while accessing its corresponding resource.
    */
   public static boolean isOverriddenMethod(IMethod method) throws CoreException {
@@ -754,12 +862,29 @@ public final class JavaElementUtil {
       // Log.info("Ignore method %s, because it has a @Override annotation", method.getElementName());
       return true;//[ 3438795 ] Ignore @Override methods
     }
+    Boolean indexed = TypeHierarchyCache.isOverriddenMethod(method);
+    if (indexed != null) {
+      return indexed.booleanValue();
+    }
+    // Generics: Search is needed to compare erased signatures
     int limitTo = IJavaSearchConstants.DECLARATIONS | IJavaSearchConstants.IGNORE_DECLARING_TYPE
         | IJavaSearchConstants.IGNORE_RETURN_TYPE;
     SearchPattern pattern = SearchPattern.createPattern(method, limitTo);
-    CountSearchRequestor requestor = new CountSearchRequestor();
     IType declaringType = method.getDeclaringType();
-    IJavaSearchScope scope = SearchEngine.createHierarchyScope(declaringType);
+    // Same as SearchEngine.createHierarchyScope(declaringType), but using the cached hierarchy
+    IType[] hierarchyTypes = TypeHierarchyCache.getTypeHierarchy(declaringType).getAllTypes();
+    final Set<IType> hierarchyTypeSet = new HashSet<IType>(Arrays.asList(hierarchyTypes));
+    CountSearchRequestor requestor = new CountSearchRequestor() {
+      @Override
+      public void acceptSearchMatch(SearchMatch match) {
+        // Ignore declarations in nested classes, which are not part of the hierarchy
+        Object element = match.getElement();
+        if (element instanceof IMember && hierarchyTypeSet.contains(((IMember) element).getDeclaringType())) {
+          super.acceptSearchMatch(match);
+        }
+      }
+    };
+    IJavaSearchScope scope = SearchEngine.createJavaSearchScope(hierarchyTypes);
     //profile:10500
     runSearch(pattern, requestor, scope);
     // Ignore 1 match: Declaring type!
@@ -799,6 +924,191 @@ public final class JavaElementUtil {
     return runSearch(pattern, requestor, sourceScope);
   }
 
+  /**
+   * Run a jdt search like {@link #runSearch(SearchPattern, SearchRequestor)}, but search only where
+   * the element could be referenced:
+   * <ul>
+   * <li>the project of the element and the projects depending on it</li>
+   * <li>the compilation unit of a private member</li>
+   * <li>the package of a default member. The package may be split over source folders and projects</li>
+   * <li>the package and the sub classes of a protected member</li>
+   * </ul>
+   * @param element searched element
+   * @param pattern search pattern
+   * @param requestor contains result after search
+   * @return true, when a {@link Exception} happened
+   * @throws CoreException when there is a OutOfMemoryError
+   */
+  public static boolean runSearch(IJavaElement element, SearchPattern pattern, SearchRequestor requestor)
+      throws CoreException {
+    return runSearch(pattern, requestor, getSearchScope(element));
+  }
+
+  /**
+   * Scopes are cached until {@link #clearSearchScopeCache()} is called
+   */
+  private static IJavaSearchScope getSearchScope(IJavaElement element) {
+    IJavaProject project = element.getJavaProject();
+    if (project == null) {
+      return createWorkspaceScope(IJavaSearchScope.SOURCES);
+    }
+    try {
+      if (element instanceof IMember && !((IMember) element).isBinary()) {
+        IMember member = (IMember) element;
+        if (!isImplicitPublic(member)) {
+          int flags = member.getFlags();
+          if (Flags.isPrivate(flags) && member.getCompilationUnit() != null) {
+            return SearchEngine.createJavaSearchScope(new IJavaElement[] { member.getCompilationUnit() });
+          }
+          if (Flags.isProtected(flags) && member.getDeclaringType() != null) {
+            return getProtectedScope(member);
+          }
+          if (!Flags.isPublic(flags) && !Flags.isProtected(flags)) {
+            return getPackageScope(member);
+          }
+        }
+      }
+      String key = project.getHandleIdentifier();
+      IJavaSearchScope scope = SCOPES.get(key);
+      if (scope == null) {
+        List<IJavaProject> projects = getDependentProjects(project);
+        Log.debug("Search scope of project %s: %s projects", project.getElementName(), //
+            Integer.valueOf(projects.size()));
+        scope = SearchEngine.createJavaSearchScope(projects.toArray(new IJavaElement[projects.size()]),
+            IJavaSearchScope.SOURCES);
+        SCOPES.put(key, scope);
+      }
+      return scope;
+    }
+    catch (JavaModelException e) {
+      Log.warn("Can't create search scope for %s: %s", getElementName(element), e);
+    }
+    return createWorkspaceScope(IJavaSearchScope.SOURCES);
+  }
+
+  /**
+   * @return <code>true</code> for members of interfaces and annotations, and for enum constants
+   */
+  private static boolean isImplicitPublic(IMember member) throws JavaModelException {
+    IType declaringType = member.getDeclaringType();
+    if (declaringType != null && declaringType.isInterface()) {
+      return true; // isInterface() is true for annotations, too
+    }
+    return member instanceof IField && ((IField) member).isEnumConstant();
+  }
+
+  private static IJavaSearchScope getPackageScope(IMember member) throws JavaModelException {
+    IPackageFragment packageFragment = getPackageFor(member);
+    String key = member.getJavaProject().getHandleIdentifier() + "/package:" + packageFragment.getElementName();
+    IJavaSearchScope scope = SCOPES.get(key);
+    if (scope == null) {
+      List<IJavaElement> elements = getPackageFragments(member.getJavaProject(), packageFragment.getElementName());
+      scope = SearchEngine.createJavaSearchScope(elements.toArray(new IJavaElement[elements.size()]));
+      SCOPES.put(key, scope);
+    }
+    return scope;
+  }
+
+  /**
+   * Protected members could be referenced in sub classes of the declaring type
+   */
+  private static IJavaSearchScope getProtectedScope(IMember member) throws JavaModelException {
+    IType declaringType = member.getDeclaringType();
+    String key = declaringType.getHandleIdentifier() + "/protected";
+    IJavaSearchScope scope = SCOPES.get(key);
+    if (scope == null) {
+      String packageName = getPackageFor(member).getElementName();
+      List<IJavaElement> elements = getPackageFragments(member.getJavaProject(), packageName);
+      ITypeHierarchy hierarchy = TypeHierarchyCache.getTypeHierarchy(declaringType);
+      for (IType subType : hierarchy.getAllSubtypes(declaringType)) {
+        ICompilationUnit unit = subType.getCompilationUnit();
+        if (unit != null && !elements.contains(unit)) {
+          elements.add(unit);
+        }
+      }
+      scope = SearchEngine.createJavaSearchScope(elements.toArray(new IJavaElement[elements.size()]));
+      SCOPES.put(key, scope);
+    }
+    return scope;
+  }
+
+  /**
+   * @return packages with the same name in the source folders of the project and the projects depending on it
+   */
+  private static List<IJavaElement> getPackageFragments(IJavaProject project, String packageName)
+      throws JavaModelException {
+    List<IJavaElement> fragments = new ArrayList<IJavaElement>();
+    for (IJavaProject dependentProject : getDependentProjects(project)) {
+      for (IPackageFragmentRoot root : dependentProject.getPackageFragmentRoots()) {
+        if (root.getKind() != IPackageFragmentRoot.K_SOURCE || !dependentProject.equals(root.getJavaProject())) {
+          continue;
+        }
+        IPackageFragment fragment = root.getPackageFragment(packageName);
+        if (fragment.exists()) {
+          fragments.add(fragment);
+        }
+      }
+    }
+    return fragments;
+  }
+
+  /**
+   * @return the project and all projects, which have the project in their classpath directly or indirectly
+   */
+  private static List<IJavaProject> getDependentProjects(IJavaProject project) throws JavaModelException {
+    Map<String, Set<String>> requiring = getRequiringProjects();
+    Set<String> dependentNames = new HashSet<String>();
+    LinkedList<String> namesToCheck = new LinkedList<String>();
+    namesToCheck.add(project.getElementName());
+    while (!namesToCheck.isEmpty()) {
+      String name = namesToCheck.removeFirst();
+      if (dependentNames.add(name) && requiring.containsKey(name)) {
+        namesToCheck.addAll(requiring.get(name));
+      }
+    }
+    List<IJavaProject> dependentProjects = new ArrayList<IJavaProject>();
+    for (IJavaProject javaProject : getJavaProjects()) {
+      if (dependentNames.contains(javaProject.getElementName())) {
+        dependentProjects.add(javaProject);
+      }
+    }
+    return dependentProjects;
+  }
+
+  /**
+   * @return project name -> names of projects, which have the project directly in their classpath
+   */
+  private static synchronized Map<String, Set<String>> getRequiringProjects() throws JavaModelException {
+    if (requiringProjects == null) {
+      Map<String, Set<String>> requiring = new HashMap<String, Set<String>>();
+      for (IJavaProject javaProject : getJavaProjects()) {
+        for (String requiredName : javaProject.getRequiredProjectNames()) {
+          Set<String> names = requiring.get(requiredName);
+          if (names == null) {
+            names = new HashSet<String>();
+            requiring.put(requiredName, names);
+          }
+          names.add(javaProject.getElementName());
+        }
+      }
+      requiringProjects = requiring;
+    }
+    return requiringProjects;
+  }
+
+  private static IJavaProject[] getJavaProjects() throws JavaModelException {
+    return JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+  }
+
+  /**
+   * Forget cached search scopes, because the classpath of projects or the class hierarchy
+   * may change between two UCDetector runs
+   */
+  public static synchronized void clearSearchScopeCache() {
+    SCOPES.clear();
+    requiringProjects = null;
+  }
+
   // Inlined code from org.eclipse.jdt.core.source_3.7.1.v_B76_R37x.jar
   // JavaSearchScopeFactory.createWorkspaceScope()  to avoid ui dependency, which causes headless to crash
   private static IJavaSearchScope createWorkspaceScope(int includeMask) {
@@ -874,7 +1184,7 @@ public final class JavaElementUtil {
    */
   private static boolean hasXType(IType type, boolean isSupertype) throws JavaModelException {
     //profile:3900
-    ITypeHierarchy hierarchy = type.newTypeHierarchy(NULL_MONITOR);
+    ITypeHierarchy hierarchy = TypeHierarchyCache.getTypeHierarchy(type);
     if (hierarchy != null) {
       IType[] types = isSupertype ? hierarchy.getSupertypes(type) : hierarchy.getSubtypes(type);
       if (types == null || types.length == 0) {
@@ -949,7 +1259,7 @@ public final class JavaElementUtil {
   public static IType[] getAllSupertypes(IType type) throws JavaModelException {
     try {
       //profile:5900
-      ITypeHierarchy hierarchy = type.newTypeHierarchy(NULL_MONITOR);
+      ITypeHierarchy hierarchy = TypeHierarchyCache.getTypeHierarchy(type);
       if (hierarchy != null) {
         return hierarchy.getAllSupertypes(type);
       }
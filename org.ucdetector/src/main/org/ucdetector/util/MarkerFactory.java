@@ -15,17 +15,23 @@ import java.util.Map;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.ISourceRange;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.osgi.util.NLS;
 import org.ucdetector.Log;
 import org.ucdetector.Messages;
 import org.ucdetector.UCDetectorPlugin;
+import org.ucdetector.preferences.DetectionConfig;
 import org.ucdetector.preferences.Prefs;
 import org.ucdetector.report.IUCDetectorReport;
 import org.ucdetector.report.MarkerReport;
@@ -102,6 +108,10 @@ public final class MarkerFactory implements IUCDetectorReport {
   }
 
   private final List<IUCDetectorReport> reports;
+  /** Preferences of the detection, to get the warn levels of the markers */
+  private final DetectionConfig config;
+  /** Markers of a search thread, which are reported later. See {@link #startBuffering()} */
+  private final ThreadLocal<List<ReportParam>> markerBuffer = new ThreadLocal<List<ReportParam>>();
 
   /** Helper attribute to transfer java element name (e.g. method name) from a marker to QuickFix  **/
   public static final String JAVA_NAME = "JAVA_NAME";
@@ -111,11 +121,16 @@ public final class MarkerFactory implements IUCDetectorReport {
    */
   public static final String JAVA_TYPE = "JAVA_TYPE";
 
-  private MarkerFactory(List<IUCDetectorReport> reports) {
+  private MarkerFactory(List<IUCDetectorReport> reports, DetectionConfig config) {
     this.reports = reports;
+    this.config = config;
   }
 
-  public static MarkerFactory createInstance() {
+  /**
+   * @param config preferences of the detection
+   * @return a factory creating eclipse markers and reports
+   */
+  public static MarkerFactory createInstance(DetectionConfig config) {
     ReportNameManager.setNextFreeFileNumberString();
     ArrayList<IUCDetectorReport> reportsList = new ArrayList<IUCDetectorReport>();
     reportsList.add(new MarkerReport());
@@ -128,7 +143,18 @@ public final class MarkerFactory implements IUCDetectorReport {
       report.setExtension(reportExtension);
       reportsList.add(report);
     }
-    return new MarkerFactory(reportsList);
+    return new MarkerFactory(reportsList, config);
+  }
+
+  /**
+   * @return a factory creating eclipse markers only, without report files or report extensions.
+   * Used by the incremental detection
+   * @param config preferences of the detection
+   */
+  public static MarkerFactory createMarkerOnlyInstance(DetectionConfig config) {
+    List<IUCDetectorReport> reportsList = new ArrayList<IUCDetectorReport>();
+    reportsList.add(new MarkerReport());
+    return new MarkerFactory(reportsList, config);
   }
 
   @Override
@@ -153,14 +179,63 @@ public final class MarkerFactory implements IUCDetectorReport {
       Log.error("reportMarker: Resource is null");
       return false;
     }
+    List<ReportParam> buffer = markerBuffer.get();
+    if (buffer != null) {
+      buffer.add(reportParam);
+      return true;
+    }
     for (IUCDetectorReport report : reports) {
       report.reportMarker(reportParam);
     }
     return true;
   }
 
+  /**
+   * Markers created by the current thread are collected, until {@link #endBuffering()} is called.
+   * Needed to report markers of parallel searches in a deterministic order
+   */
+  public void startBuffering() {
+    markerBuffer.set(new ArrayList<ReportParam>());
+  }
+
+  /**
+   * @return markers created by the current thread since {@link #startBuffering()}
+   */
+  public List<ReportParam> endBuffering() {
+    List<ReportParam> buffer = markerBuffer.get();
+    markerBuffer.remove();
+    return buffer == null ? Collections.<ReportParam> emptyList() : buffer;
+  }
+
+  /**
+   * Do not delete the markers of the javaElements now. Instead compare them with the markers of this detection
+   * at {@link #endReport()}: Only new markers are created, and only markers not found again are deleted
+   * @param javaElements elements selected in user interface
+   * @throws CoreException when there are problem reading markers
+   */
+  public void updateMarkers(IJavaElement[] javaElements) throws CoreException {
+    for (IUCDetectorReport report : reports) {
+      if (report instanceof MarkerReport) {
+        ((MarkerReport) report).collectOldMarkers(javaElements);
+      }
+    }
+  }
+
+  /**
+   * Report markers collected by {@link #endBuffering()}
+   * @param reportParams markers to report
+   * @throws CoreException when there are problem creating marker
+   */
+  public void reportBufferedMarkers(List<ReportParam> reportParams) throws CoreException {
+    for (ReportParam reportParam : reportParams) {
+      for (IUCDetectorReport report : reports) {
+        report.reportMarker(reportParam);
+      }
+    }
+  }
+
   @Override
-  public void reportDetectionProblem(IStatus status) {
+  public synchronized void reportDetectionProblem(IStatus status) {
     for (IUCDetectorReport report : reports) {
       report.reportDetectionProblem(status);
     }
@@ -187,7 +262,7 @@ public final class MarkerFactory implements IUCDetectorReport {
     String searchInfo = JavaElementUtil.getMemberTypeString(method);
     String elementName = JavaElementUtil.getElementName(method);
     String message = NLS.bind(Messages.MarkerFactory_MarkerFinalMethod, new Object[] { searchInfo, elementName });
-    return reportMarker(new ReportParam(method, message, line, UCD_MARKER_TYPE_USE_FINAL));
+    return reportMarker(new ReportParam(config, method, message, line, UCD_MARKER_TYPE_USE_FINAL));
   }
 
   /**
@@ -201,7 +276,7 @@ public final class MarkerFactory implements IUCDetectorReport {
     String searchInfo = JavaElementUtil.getMemberTypeString(field);
     String elementName = JavaElementUtil.getElementName(field);
     String message = NLS.bind(Messages.MarkerFactory_MarkerFinalField, new Object[] { searchInfo, elementName });
-    return reportMarker(new ReportParam(field, message, line, UCD_MARKER_TYPE_USE_FINAL));
+    return reportMarker(new ReportParam(config, field, message, line, UCD_MARKER_TYPE_USE_FINAL));
   }
 
   /**
@@ -215,7 +290,7 @@ public final class MarkerFactory implements IUCDetectorReport {
    */
   public boolean createReferenceMarker(IMember javaElement, String message, int line, int found) throws CoreException {
     String type = found == 0 ? UCD_MARKER_TYPE_UNUSED : UCD_MARKER_TYPE_USED_FEW;
-    return reportMarker(new ReportParam(javaElement, message, line, type, found));
+    return reportMarker(new ReportParam(config, javaElement, message, line, type, found));
   }
 
   /**
@@ -229,7 +304,7 @@ public final class MarkerFactory implements IUCDetectorReport {
     String searchInfo = JavaElementUtil.getMemberTypeString(member);
     String elementName = JavaElementUtil.getElementName(member);
     String message = NLS.bind(Messages.MarkerFactory_MarkerTestOnly, new Object[] { searchInfo, elementName });
-    return reportMarker(new ReportParam(member, message, line, UCD_MARKER_TYPE_TEST_ONLY));
+    return reportMarker(new ReportParam(config, member, message, line, UCD_MARKER_TYPE_TEST_ONLY));
   }
 
   /**
@@ -241,7 +316,7 @@ public final class MarkerFactory implements IUCDetectorReport {
    * @throws CoreException when there are problem creating marker
    */
   public boolean createReferenceMarkerOther(IMember member, String message, int line) throws CoreException {
-    return reportMarker(new ReportParam(member, message, line, UCD_MARKER_TYPE_OTHER));
+    return reportMarker(new ReportParam(config, member, message, line, UCD_MARKER_TYPE_OTHER));
   }
 
   /**
@@ -261,7 +336,7 @@ public final class MarkerFactory implements IUCDetectorReport {
     }
     Object[] bindings = new Object[] { searchInfo, JavaElementUtil.getElementName(member), visibility };
     String message = NLS.bind(Messages.MarkerFactory_MarkerVisibility, bindings);
-    return reportMarker(new ReportParam(member, message, line, markerType));
+    return reportMarker(new ReportParam(config, member, message, line, markerType));
   }
 
   public static String getVisibilityForMarkerType(String markerType) {
@@ -286,6 +361,59 @@ public final class MarkerFactory implements IUCDetectorReport {
     }
   }
 
+  /**
+   * Delete markers of all javaElements and all of their children in one workspace operation
+   * @param javaElements to delete markers for
+   * @throws CoreException when there are problem deleting marker
+   */
+  public static void deleteMarkers(final IJavaElement[] javaElements) throws CoreException {
+    runInWorkspace(new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        for (IJavaElement javaElement : javaElements) {
+          deleteMarkers(javaElement);
+        }
+      }
+    });
+  }
+
+  /**
+   * Run changes of markers as one workspace operation. Listeners like the problems view, decorators
+   * and builders get one resource change event, instead of one event for each marker
+   * @param runnable creating or deleting markers
+   * @throws CoreException when there are problem changing markers
+   */
+  public static void runInWorkspace(IWorkspaceRunnable runnable) throws CoreException {
+    // Changing markers needs no scheduling rule
+    ResourcesPlugin.getWorkspace().run(runnable, null, IWorkspace.AVOID_UPDATE, null);
+  }
+
+  /**
+   * Delete markers of a class, method or field and of its children, but not the markers of other members
+   * in the same file. A marker belongs to a member, when it starts inside the source code of the member
+   * @param member to delete markers for
+   * @throws CoreException when there are problem deleting marker
+   */
+  public static void deleteMemberMarkers(IMember member) throws CoreException {
+    IResource resource = member.getResource();
+    ISourceRange range = member.getSourceRange();
+    if (resource == null || !resource.exists() || range == null || range.getOffset() < 0) {
+      return;
+    }
+    int start = range.getOffset();
+    int end = start + range.getLength();
+    List<IMarker> markers = new ArrayList<IMarker>();
+    for (IMarker marker : resource.findMarkers(UCD_MARKER_TYPE_PREFIX, true, IResource.DEPTH_ZERO)) {
+      int charStart = marker.getAttribute(IMarker.CHAR_START, -1);
+      if (charStart >= start && charStart < end) {
+        markers.add(marker);
+      }
+    }
+    if (!markers.isEmpty()) {
+      resource.getWorkspace().deleteMarkers(markers.toArray(new IMarker[markers.size()]));
+    }
+  }
+
   @Override
   public void setExtension(ReportExtension reportExtension) {
     //
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2026 agent
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ucdetector.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.ITypeParameter;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.Signature;
+
+/**
+ * Erased method signatures of all types of a type hierarchy. Used to find out, if a method is overridden
+ * or overrides a method, without running a search for each method.
+ * <p>
+ * Signatures are compared by the simple names of the erased parameter types, because source methods have
+ * unresolved parameter types. When a parameter type is a type variable, the erasure is unknown here:
+ * {@link #isOverridden(IMethod)} returns <code>null</code> and a search is needed.
+ * <p>
+ * @author agent
+ * @since 2026-10-17
+ */
+final class MethodSignatureIndex {
+  /** "name/parameterCount" -> methods of the hierarchy having this name and parameter count */
+  private final Map<String, List<MethodSignature>> signatures = new HashMap<String, List<MethodSignature>>();
+
+  /**
+   * @param hierarchy containing all super types and all sub types of a type
+   * @throws JavaModelException if a type does not exist
+   */
+  MethodSignatureIndex(ITypeHierarchy hierarchy) throws JavaModelException {
+    for (IType type : hierarchy.getAllTypes()) {
+      for (IMethod method : type.getMethods()) {
+        if (method.isConstructor()) {
+          continue;
+        }
+        String key = getKey(method);
+        List<MethodSignature> list = signatures.get(key);
+        if (list == null) {
+          list = new ArrayList<MethodSignature>(2);
+          signatures.put(key, list);
+        }
+        list.add(new MethodSignature(method));
+      }
+    }
+  }
+
+  /**
+   * @param method method declared by a type of the hierarchy
+   * @return <code>true</code>, if another type of the hierarchy declares a method with the same signature,
+   *         <code>false</code>, if there is none, <code>null</code>, if it can't be decided because of generics
+   * @throws JavaModelException if the method does not exist
+   */
+  Boolean isOverridden(IMethod method) throws JavaModelException {
+    List<MethodSignature> candidates = signatures.get(getKey(method));
+    if (candidates == null) {
+      return Boolean.FALSE;
+    }
+    MethodSignature signature = new MethodSignature(method);
+    IType declaringType = method.getDeclaringType();
+    boolean unknown = false;
+    for (MethodSignature candidate : candidates) {
+      if (candidate.declaringType.equals(declaringType)) {
+        continue;
+      }
+      if (signature.isGeneric || candidate.isGeneric) {
+        unknown = true;
+      }
+      else if (signature.erasure.equals(candidate.erasure)) {
+        return Boolean.TRUE;
+      }
+    }
+    return unknown ? null : Boolean.FALSE;
+  }
+
+  private static String getKey(IMethod method) {
+    return method.getElementName() + '/' + method.getNumberOfParameters();
+  }
+
+  /**
+   * Declaring type and erased parameter types of a method
+   */
+  private static final class MethodSignature {
+    private final IType declaringType;
+    private final String erasure;
+    private final boolean isGeneric;
+
+    MethodSignature(IMethod method) throws JavaModelException {
+      declaringType = method.getDeclaringType();
+      Set<String> typeVariables = getTypeVariables(method);
+      StringBuilder sb = new StringBuilder();
+      boolean generic = false;
+      for (String parameterType : method.getParameterTypes()) {
+        String erasedType = Signature.getTypeErasure(parameterType);
+        String elementType = Signature.getElementType(erasedType);
+        String simpleName = Signature.getSimpleName(Signature.toString(elementType));
+        if (Signature.getTypeSignatureKind(elementType) == Signature.TYPE_VARIABLE_SIGNATURE
+            || typeVariables.contains(simpleName)) {
+          generic = true;
+        }
+        sb.append(simpleName);
+        for (int i = Signature.getArrayCount(erasedType); i > 0; i--) {
+          sb.append("[]"); //$NON-NLS-1$
+        }
+        sb.append(',');
+      }
+      erasure = sb.toString();
+      isGeneric = generic;
+    }
+
+    /**
+     * @return names of the type parameters of the method and of its declaring types
+     */
+    private static Set<String> getTypeVariables(IMethod method) throws JavaModelException {
+      Set<String> result = new HashSet<String>();
+      for (ITypeParameter typeParameter : method.getTypeParameters()) {
+        result.add(typeParameter.getElementName());
+      }
+      for (IType type = method.getDeclaringType(); type != null; type = type.getDeclaringType()) {
+        for (ITypeParameter typeParameter : type.getTypeParameters()) {
+          result.add(typeParameter.getElementName());
+        }
+      }
+      return result;
+    }
+  }
+}
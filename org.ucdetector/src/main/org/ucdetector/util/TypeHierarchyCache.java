@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2026 agent
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ucdetector.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.JavaModelException;
+import org.ucdetector.Log;
+
+/**
+ * Creating a type hierarchy is very expensive. During detection the hierarchy of a class is needed
+ * several times:
+ * <ul>
+ * <li>super classes for the 'implements' filter</li>
+ * <li>sub classes to check, if methods could be final</li>
+ * <li>super and sub classes to check, if a method is overridden (for each method!)</li>
+ * <li>sub classes to find references of protected members</li>
+ * </ul>
+ * The hierarchies of the last used classes are kept, until {@link #clear()} is called at the end of detection.
+ * Classes are detected one after the other, so a small cache is enough.
+ * <p>
+ * For the override check the erased method signatures of a hierarchy are kept, too:
+ * See {@link MethodSignatureIndex}.
+ * <p>
+ * @author agent
+ * @since 2026-10-17
+ */
+public final class TypeHierarchyCache {
+  private static final int MAX_SIZE = 100;
+  private static final NullProgressMonitor NULL_MONITOR = new NullProgressMonitor();
+  /** Last used types first */
+  private static final Map<IType, ITypeHierarchy> HIERARCHIES = new LinkedHashMap<IType, ITypeHierarchy>(16, 0.75f, true);
+  /** Last used types first */
+  private static final Map<IType, MethodSignatureIndex> SIGNATURES = new LinkedHashMap<IType, MethodSignatureIndex>(16,
+      0.75f, true);
+  private static int hits = 0;
+  private static int misses = 0;
+  private static int overrideIndexed = 0;
+  private static int overrideUnknown = 0;
+
+  private TypeHierarchyCache() {
+    //
+  }
+
+  /**
+   * @param type focus type of the hierarchy
+   * @return a hierarchy containing all super types and all sub types of the type
+   * @throws JavaModelException if the type does not exist
+   */
+  public static ITypeHierarchy getTypeHierarchy(IType type) throws JavaModelException {
+    synchronized (HIERARCHIES) {
+      ITypeHierarchy hierarchy = HIERARCHIES.get(type);
+      if (hierarchy != null) {
+        hits++;
+        return hierarchy;
+      }
+      misses++;
+    }
+    // Don't block other search threads, while creating the hierarchy
+    ITypeHierarchy hierarchy = type.newTypeHierarchy(NULL_MONITOR);
+    synchronized (HIERARCHIES) {
+      HIERARCHIES.put(type, hierarchy);
+      removeEldest(HIERARCHIES);
+    }
+    return hierarchy;
+  }
+
+  /**
+   * @param method method to check
+   * @return <code>true</code>, if a super type or sub type declares a method with the same erased signature,
+   *         <code>null</code>, if this can't be decided without a search
+   * @throws JavaModelException if the method does not exist
+   */
+  public static Boolean isOverriddenMethod(IMethod method) throws JavaModelException {
+    IType type = method.getDeclaringType();
+    MethodSignatureIndex index;
+    synchronized (HIERARCHIES) {
+      index = SIGNATURES.get(type);
+    }
+    if (index == null) {
+      index = new MethodSignatureIndex(getTypeHierarchy(type));
+      synchronized (HIERARCHIES) {
+        SIGNATURES.put(type, index);
+        removeEldest(SIGNATURES);
+      }
+    }
+    Boolean result = index.isOverridden(method);
+    synchronized (HIERARCHIES) {
+      if (result == null) {
+        overrideUnknown++;
+      }
+      else {
+        overrideIndexed++;
+      }
+    }
+    return result;
+  }
+
+  private static void removeEldest(Map<IType, ?> map) {
+    if (map.size() > MAX_SIZE) {
+      Iterator<IType> eldest = map.keySet().iterator();
+      eldest.next();
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Log cache statistics and forget all hierarchies, because the code may change before next detection
+   */
+  public static void clear() {
+    synchronized (HIERARCHIES) {
+      if (hits + misses > 0) {
+        Log.info("Type hierarchy cache: %s hits, %s misses", Integer.valueOf(hits), Integer.valueOf(misses)); //$NON-NLS-1$
+      }
+      if (overrideIndexed + overrideUnknown > 0) {
+        Log.info("Override check: %s methods found in signature index, %s methods searched", //$NON-NLS-1$
+            Integer.valueOf(overrideIndexed), Integer.valueOf(overrideUnknown));
+      }
+      HIERARCHIES.clear();
+      SIGNATURES.clear();
+      hits = 0;
+      misses = 0;
+      overrideIndexed = 0;
+      overrideUnknown = 0;
+    }
+  }
+}